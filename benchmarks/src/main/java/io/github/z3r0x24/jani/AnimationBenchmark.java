@@ -0,0 +1,87 @@
+package io.github.z3r0x24.jani;
+
+import io.github.z3r0x24.jani.Keyframes.Keyframes;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of an {@link Animation}: easing, keyframe segment lookup and interpolation, as run on the EDT for every
+ * delivered frame. Frames advance sequentially like a playing animation does, against timelines of growing size.
+ * Every value (and Point/Dimension instance) handed to {@code update} goes into a blackhole, so neither the
+ * interpolation nor the allocations can be optimized away.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnimationBenchmark {
+    // Frames of a 2 second animation at 60 FPS
+    private static final int FRAMES = 120;
+
+    @Param({"2", "8", "32", "128", "1024"})
+    public int keyframeCount;
+
+    @Param
+    public Keyframes.Type type;
+
+    @Param({"false", "true"})
+    public boolean reuseValues;
+
+    private Animator animator;
+    private int frame;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        Keyframes keyframes = new Keyframes(type, Keyframes.Unit.PERCENT);
+
+        for (int i = 0; i < keyframeCount; i++) {
+            float instant = 100f * i / (keyframeCount - 1);
+
+            switch (type) {
+                case INT: keyframes.addKeyframe(instant, i * 7); break;
+                case DOUBLE: keyframes.addKeyframe(instant, i * 0.5); break;
+                case POINT: keyframes.addKeyframe(instant, new Point(i * 3, -i)); break;
+                case DIM: keyframes.addKeyframe(instant, new Dimension(i, i * 2)); break;
+            }
+        }
+
+        Animation animation = new Animation(keyframes, 2, 0, true, Easing.Default.EASE_IN_OUT_CUBIC) {
+            @Override
+            protected void update(Dimension dim) {
+                blackhole.consume(dim);
+            }
+
+            @Override
+            protected void update(Point p) {
+                blackhole.consume(p);
+            }
+
+            @Override
+            protected void update(int x) {
+                blackhole.consume(x);
+            }
+
+            @Override
+            protected void update(double x) {
+                blackhole.consume(x);
+            }
+        };
+        animation.reuseValues(reuseValues);
+
+        // The animator is what the frame clock delivers frames to
+        animator = animation.getAnimator();
+    }
+
+    @Benchmark
+    public void update() {
+        animator.deliver((float) frame / FRAMES);
+
+        if (++frame > FRAMES)
+            frame = 0;
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.z3r0x24.jani;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of evaluating every {@link Easing.Default} curve, measured over a sweep of fractions in [0, 1].
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EasingBenchmark {
+    private static final int FRACTIONS = 1024;
+
+    @Param
+    public Easing.Default curve;
+
+    private final float[] fractions = new float[FRACTIONS];
+    private final float[] results = new float[FRACTIONS];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < FRACTIONS; i++)
+            fractions[i] = (float) i / (FRACTIONS - 1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRACTIONS)
+    public void apply(Blackhole bh) {
+        Easing easing = curve;
+
+        for (float fraction : fractions)
+            bh.consume(easing.apply(fraction));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRACTIONS)
+    public float[] applyAll() {
+        curve.applyAll(fractions, results, 0, FRACTIONS);
+        return results;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRACTIONS)
+    public void applyTabulated(Blackhole bh) {
+        Easing easing = Easing.tabulated(curve);
+
+        for (float fraction : fractions)
+            bh.consume(easing.apply(fraction));
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.z3r0x24.jani;
+
+import io.github.z3r0x24.jani.Keyframes.Keyframes;
+import io.github.z3r0x24.jani.Keyframes.ParseUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link Keyframes#parse(String)} for strings of growing size, along with the cached path taken by
+ * {@link Keyframes#parseShared(String)} once the string has been seen.
+ * <p>
+ * {@code regexBaseline} runs the pipeline {@code parse} used before the single pass parser (line splitting and the
+ * deprecated {@link ParseUtil} regular expressions), to be compared with {@code parseLegacySource}: both read the same
+ * string, restricted to what the old grammar accepted (whole percentages and non-negative coordinates).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+    @Param({"4", "64", "1024"})
+    public int keyframeCount;
+
+    @Param({"INT", "DOUBLE", "POINT"})
+    public String type;
+
+    private String source;
+    private String legacySource;
+
+    @Setup
+    public void setup() {
+        StringBuilder builder = new StringBuilder("slide {\n");
+        StringBuilder legacy = new StringBuilder("slide {\n");
+
+        for (int i = 0; i < keyframeCount; i++) {
+            // Two decimals, like hand written key frames usually have
+            builder.append("    ").append(Math.round(10000.0 * i / (keyframeCount - 1)) / 100.0).append("%: ");
+            legacy.append("    ").append(Math.round(100.0 * i / (keyframeCount - 1))).append("%: ");
+
+            switch (type) {
+                case "INT":
+                    builder.append(i * 7);
+                    legacy.append(i * 7);
+                    break;
+                case "DOUBLE":
+                    builder.append(i * 0.25);
+                    legacy.append(i * 0.25);
+                    break;
+                case "POINT":
+                    builder.append("point(").append(i * 3).append(", ").append(-i).append(")");
+                    legacy.append("point(").append(i * 3).append(", ").append(i).append(")");
+                    break;
+            }
+
+            builder.append(";\n");
+            legacy.append(";\n");
+        }
+
+        source = builder.append("}").toString();
+        legacySource = legacy.append("}").toString();
+    }
+
+    @Benchmark
+    public Keyframes parse() {
+        return Keyframes.parse(source);
+    }
+
+    @Benchmark
+    public Keyframes parseShared() {
+        return Keyframes.parseShared(source);
+    }
+
+    @Benchmark
+    public Keyframes parseLegacySource() {
+        return Keyframes.parse(legacySource);
+    }
+
+    // The former Keyframes.parse, over the public API (adding a key frame keeps them sorted, as the final sort did)
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Keyframes regexBaseline() {
+        String temp = legacySource.replaceAll("\n+", "");
+        temp = temp.substring(temp.indexOf('{') + 1, temp.indexOf('}'));
+
+        Keyframes keyframes = null;
+        Keyframes.Unit unit = null;
+        Keyframes.Type frameType = null;
+
+        for (String frame : temp.split("\\s*;\\s*")) {
+            if (frame.trim().isEmpty())
+                continue;
+
+            String[] values = frame.trim().split("\\s*:\\s*");
+
+            if (keyframes == null) {
+                unit = ParseUtil.parseUnit(values[0]);
+                frameType = ParseUtil.parseType(values[1]);
+                keyframes = new Keyframes(frameType, unit);
+            }
+
+            float instant = ParseUtil.parseUnitValue(values[0], unit);
+            Object value = ParseUtil.parseValue(values[1]);
+
+            if (value instanceof Integer && frameType == Keyframes.Type.DOUBLE)
+                value = ((Integer) value).doubleValue();
+
+            keyframes.addKeyframe(instant, value);
+        }
+
+        return keyframes;
+    }
+}
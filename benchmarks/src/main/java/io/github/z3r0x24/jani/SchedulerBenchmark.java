@@ -0,0 +1,54 @@
+package io.github.z3r0x24.jani;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frame clock overhead with many animators running at once: one frame is a full pulse of the scheduler, walking the
+ * active set, advancing every animator's timeline, filling a pooled batch and delivering it to empty updates. Frames
+ * are driven by a {@link VirtualClock}, which runs the batch right away instead of through the EDT event queue, so the
+ * real frame thread never touches the animators.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SchedulerBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int animatorCount;
+
+    private Animator[] animators;
+    private VirtualClock clock;
+
+    @Setup
+    public void setup() {
+        // Installed before playing, so the animators are registered on virtual time and the frame thread stays idle
+        clock = VirtualClock.install();
+        animators = new Animator[animatorCount];
+
+        for (int i = 0; i < animatorCount; i++) {
+            animators[i] = new Animator(1000 + i, 0, true, Easing.Default.EASE_OUT_QUAD) {
+                @Override
+                public void update(float fraction) {}
+            };
+
+            animators[i].play();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (Animator animator : animators)
+            animator.pause();
+
+        clock.uninstall();
+    }
+
+    @Benchmark
+    public void frame() {
+        clock.step();
+    }
+}
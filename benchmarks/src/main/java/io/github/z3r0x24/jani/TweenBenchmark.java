@@ -0,0 +1,73 @@
+package io.github.z3r0x24.jani;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single {@link Tween} interpolation for every value type, allocating and reusing the result where both are
+ * possible.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TweenBenchmark {
+    private final Point fromPoint = new Point(-120, 40);
+    private final Point toPoint = new Point(640, 480);
+    private final Point point = new Point();
+    private final Dimension fromDim = new Dimension(10, 10);
+    private final Dimension toDim = new Dimension(800, 600);
+    private final Dimension dim = new Dimension();
+
+    private float fraction;
+
+    // Changes the fraction on every call so the results can't be folded into constants
+    private float next() {
+        fraction += 0.001f;
+
+        if (fraction > 1)
+            fraction = 0;
+
+        return fraction;
+    }
+
+    @Benchmark
+    public int interpolateInt() {
+        return Tween.interpolateInt(-120, 640, next());
+    }
+
+    @Benchmark
+    public double interpolateDouble() {
+        return Tween.interpolateDouble(-1.5, 2.75, next());
+    }
+
+    @Benchmark
+    public Point interpolatePoint() {
+        return Tween.interpolatePoint(fromPoint, toPoint, next());
+    }
+
+    @Benchmark
+    public Point interpolatePointReused() {
+        return Tween.interpolatePoint(fromPoint, toPoint, next(), point);
+    }
+
+    @Benchmark
+    public Point interpolatePointEased() {
+        return Tween.interpolatePoint(fromPoint, toPoint, next(), Easing.Default.EASE_IN_OUT_SIN,
+                Easing.Default.EASE_OUT_BACK, point);
+    }
+
+    @Benchmark
+    public Dimension interpolateDim() {
+        return Tween.interpolateDim(fromDim, toDim, next());
+    }
+
+    @Benchmark
+    public Dimension interpolateDimReused() {
+        return Tween.interpolateDim(fromDim, toDim, next(), dim);
+    }
+}
@@ -1,7 +1,9 @@
 package io.github.z3r0x24.jani;
 
+import io.github.z3r0x24.jani.Keyframes.CompiledKeyframes;
 import io.github.z3r0x24.jani.Keyframes.Keyframes;
 
+import javax.swing.*;
 import java.awt.*;
 
 /**
@@ -13,6 +15,10 @@ public abstract class Animation {
     private final Animator animator;
     private int keyframeIndex;
 
+    private volatile boolean reuseValues = false;
+    private final Point point = new Point();
+    private final Dimension dim = new Dimension();
+
     public Animation(Keyframes kf, float durationSeconds) {
         this(kf, durationSeconds, 0, false, Easing.Default.LINEAR);
     }
@@ -31,91 +37,28 @@ public abstract class Animation {
         this.animator = new Animator(Math.round(durationSeconds * 1000), Math.round(delaySeconds * 1000), loops, easing) {
             @Override
             public void update(float fraction) {
-                float previous, next;
-
-                if (keyframes.getUnit().equals(Keyframes.Unit.SECOND)) {
-                    if (keyframeIndex + 1 < keyframes.size() &&
-                            fraction * durationSeconds > keyframes.getInstantAt(keyframeIndex + 1)) {
-                        keyframeIndex++;
-                    }
-
-                    previous = keyframes.getInstantAt(keyframeIndex) / durationSeconds;
-
-                    if (keyframeIndex + 1 < keyframes.size())
-                        next = keyframes.getInstantAt(keyframeIndex + 1) / durationSeconds;
-                    else
-                        next = 1;
-                } else {
-                    if (keyframeIndex + 1 < keyframes.size() &&
-                            fraction > keyframes.getInstantAt(keyframeIndex + 1)) {
-                        keyframeIndex++;
-                    }
-
-                    previous = keyframes.getInstantAt(keyframeIndex);
-
-                    if (keyframeIndex + 1 < keyframes.size())
-                        next = keyframes.getInstantAt(keyframeIndex + 1);
-                    else
-                        next = 1;
-                }
-
-                float relativeFraction;
+                CompiledKeyframes timeline = keyframes.compile(durationSeconds);
 
-                if (fraction == 0) {
-                    relativeFraction = 0;
-                    keyframeIndex = 0;
-                } else {
-                    relativeFraction = (fraction - previous) / (next - previous);
-                }
+                keyframeIndex = timeline.segment(fraction, keyframeIndex);
 
-                switch (keyframes.getType()) {
+                switch (timeline.getType()) {
                     case INT:
-                        int prevInt, nextInt;
-
-                        prevInt = keyframes.getIntAt(keyframeIndex);
-
-                        if (keyframeIndex + 1 < keyframes.size())
-                            nextInt = keyframes.getIntAt(keyframeIndex + 1);
-                        else
-                            nextInt = keyframes.getIntAt(keyframeIndex);
-
-                        Animation.this.update(Tween.interpolateInt(prevInt, nextInt, relativeFraction));
+                        Animation.this.update(timeline.getInt(keyframeIndex, fraction));
                         break;
                     case DOUBLE:
-                        double prevDouble, nextDouble;
-
-                        prevDouble = keyframes.getDoubleAt(keyframeIndex);
-
-                        if (keyframeIndex + 1 < keyframes.size())
-                            nextDouble = keyframes.getDoubleAt(keyframeIndex + 1);
-                        else
-                            nextDouble = keyframes.getDoubleAt(keyframeIndex);
-
-                        Animation.this.update(Tween.interpolateDouble(prevDouble, nextDouble, relativeFraction));
+                        Animation.this.update(timeline.getDouble(keyframeIndex, fraction));
                         break;
                     case POINT:
-                        Point prevPoint, nextPoint;
-
-                        prevPoint = keyframes.getPointAt(keyframeIndex);
+                        Point p = reuseValues ? point : new Point();
+                        p.setLocation(timeline.getX(keyframeIndex, fraction), timeline.getY(keyframeIndex, fraction));
 
-                        if (keyframeIndex + 1 < keyframes.size())
-                            nextPoint = keyframes.getPointAt(keyframeIndex + 1);
-                        else
-                            nextPoint = keyframes.getPointAt(keyframeIndex);
-
-                        Animation.this.update(Tween.interpolatePoint(prevPoint, nextPoint, relativeFraction));
+                        Animation.this.update(p);
                         break;
                     case DIM:
-                        Dimension prevDim, nextDim;
-
-                        prevDim = keyframes.getDimAt(keyframeIndex);
-
-                        if (keyframeIndex + 1 < keyframes.size())
-                            nextDim = keyframes.getDimAt(keyframeIndex + 1);
-                        else
-                            nextDim = keyframes.getDimAt(keyframeIndex);
+                        Dimension d = reuseValues ? dim : new Dimension();
+                        d.setSize(timeline.getX(keyframeIndex, fraction), timeline.getY(keyframeIndex, fraction));
 
-                        Animation.this.update(Tween.interpolateDim(prevDim, nextDim, relativeFraction));
+                        Animation.this.update(d);
                         break;
                 }
             }
@@ -127,6 +70,11 @@ public abstract class Animation {
         };
     }
 
+    // The animator frames are delivered to, for benchmarks driving it without the frame clock
+    Animator getAnimator() {
+        return animator;
+    }
+
     /**
      * Plays the animation in whichever direction it was set before calling this method.
      */
@@ -270,6 +218,69 @@ public abstract class Animation {
         animator.freeze(b);
     }
 
+    /**
+     * Determines whether {@code update(Point)} and {@code update(Dimension)} receive the same instance on every frame
+     * instead of a new one. Reusing it means animating points or dimensions produces no garbage, but the value is
+     * overwritten on the next frame: copy it if it needs to be kept around.
+     * @param b If true, a single Point/Dimension instance will be reused for every update
+     */
+    public void reuseValues(boolean b) {
+        this.reuseValues = b;
+    }
+
+    /**
+     * @return true if this animation reuses the same Point/Dimension instance for every update
+     */
+    public boolean isReusingValues() {
+        return reuseValues;
+    }
+
+    /**
+     * Binds this animation to a component that will be repainted after every update, coalesced with the other
+     * animations bound to it into one repaint per frame.
+     * @param target Component to repaint, null to stop repainting
+     * @see Animator#setRepaintTarget(JComponent) More information on repaint coalescing
+     */
+    public void setRepaintTarget(JComponent target) {
+        animator.setRepaintTarget(target);
+    }
+
+    /**
+     * @return Component repainted after every update, null if none
+     */
+    public JComponent getRepaintTarget() {
+        return animator.getRepaintTarget();
+    }
+
+    /**
+     * Marks the whole repaint target as dirty. Must be called from {@code update()}.
+     */
+    public void markDirty() {
+        animator.markDirty();
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param x X coordinate of the region
+     * @param y Y coordinate of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     * @see Animator#markDirty(int, int, int, int)
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        animator.markDirty(x, y, width, height);
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param region Region to repaint
+     */
+    public void markDirty(Rectangle region) {
+        animator.markDirty(region);
+    }
+
     /**
      * @return true if the animation is currently running
      */
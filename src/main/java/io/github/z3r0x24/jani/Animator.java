@@ -1,21 +1,16 @@
 package io.github.z3r0x24.jani;
 
 import javax.swing.*;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.awt.*;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The animator class provides the ticking function to perform updates and takes care of interpolating the fraction
  * value using the easing function provided to generate the in-between values.
  */
 public abstract class Animator {
-    private static final ScheduledExecutorService scheduler = createScheduler();
-    private static Thread timerAccuracyThread = null;
-
-    private static int FPSTarget = 60;
+    private static volatile double FPSTarget = 60;
     private static volatile boolean frameSkip = true;
     private static float GlobalSpeedFactor = 1;
 
@@ -25,14 +20,51 @@ public abstract class Animator {
     private volatile Easing easing;
     private volatile boolean reverse = false;
 
-    protected ScheduledFuture<?> ticker;
+    // Single slot mailbox between the frame clock and the EDT: the raw bits of the latest fraction not yet delivered, or
+    // EMPTY. Publishing into an empty slot is what queues a delivery, so there's never more than one pending per
+    // animator; publishing into a full one just replaces the stale value.
+    private static final int EMPTY = 0xFFFFFFFF;
+    private final AtomicInteger mailbox = new AtomicInteger(EMPTY);
+    private long startTime;
 
     protected volatile float fraction;
-    protected float fractionDelta;
     protected volatile float speedFactor = GlobalSpeedFactor;
-    protected int expectedDelay;
+    protected long expectedDelay;
+    private long frameTime;
+
+    /**
+     * Fraction advanced per frame at normal speed, as of the last time the animation was played.
+     * @deprecated Progress is now computed from the elapsed time rather than added up frame by frame, so this value is
+     * informative only and changing it has no effect.
+     */
+    @Deprecated
+    protected float fractionDelta;
+
+    /**
+     * Time of the last frame in milliseconds, or 0 if there hasn't been one since the animation was last played. Only
+     * differences between values are meaningful, it's not a wall clock time.
+     * @deprecated Kept for subclasses written against the scheduler based animator, changing it has no effect.
+     */
+    @Deprecated
     protected long lastUpdateTime;
 
+    // Timeline: progress is computed from scratch every frame as base + direction * speed * elapsed / duration, so
+    // nothing is integrated and nothing drifts. Pausing, resuming and speed changes move the base instead.
+    private long durationNanos;
+    private long baseTime;
+    private double baseFraction;
+    private double progress;
+    private long frameCount;
+    private boolean timelineSkips;
+
+    // Only counted while frame metrics are enabled
+    private volatile long tickCount;
+    private volatile long coalescedFrameCount;
+
+    // Component repainted after each update, and whether the current update reported its own dirty region
+    private volatile JComponent repaintTarget;
+    private boolean markedDirty;
+
     private volatile boolean running = false;
     private volatile boolean backToStart = false;
     private volatile boolean freeze = false;
@@ -52,22 +84,6 @@ public abstract class Animator {
         this.easing = easing;
     }
 
-    // For some ungodly reason, delay accuracy in Windows is awful (off by about 10 - 15 ms) unless I do this
-    private static void initAccuracyThread() {
-        if (!System.getProperty("os.name").startsWith("Win") || timerAccuracyThread != null)
-            return;
-
-        timerAccuracyThread = new Thread(() -> {
-            try {
-                Thread.sleep(Long.MAX_VALUE);
-            } catch (Exception ignored) {}
-        });
-
-        timerAccuracyThread.setName("Timer accuracy thread");
-        timerAccuracyThread.setDaemon(true);
-        timerAccuracyThread.start();
-    }
-
     /**
      * Plays the animation in whichever direction it was set before calling this method.
      */
@@ -80,41 +96,93 @@ public abstract class Animator {
      * @param skipDelay If true, will skip the initial delay.
      */
     public void play(boolean skipDelay) {
-        if (ticker == null) {
+        if (!running) {
             if (freeze && fraction == 1 && !reverse)
                 cancel();
 
-            initAccuracyThread();
-
             running = true;
 
-            expectedDelay = 1000 / FPSTarget;
+            expectedDelay = FrameClock.getPeriod();
+            fractionDelta = (float) expectedDelay / Math.max(1, TimeUnit.MILLISECONDS.toNanos(duration));
+            lastUpdateTime = 0;
             int delayTime = skipDelay ? 0 : delay;
 
-            fractionDelta = 1f/(FPSTarget * duration /1000f);
+            startTime = FrameClock.now() + TimeUnit.MILLISECONDS.toNanos(delayTime);
 
-            ticker = scheduler.scheduleWithFixedDelay(new Runnable() {
-                final AtomicBoolean updateScheduled = new AtomicBoolean(false);
+            synchronized (this) {
+                durationNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(duration));
+                baseTime = startTime;
+                baseFraction = fraction;
+                progress = fraction;
+                frameCount = 0;
+                timelineSkips = frameSkip;
+            }
 
-                @Override
-                public void run() {
-                    if (!updateScheduled.get()) {
-                        tick();
+            FrameClock.register(this);
+        }
+    }
 
-                        final float frameFraction = fraction;
+    // Called by the frame clock once per frame while this animator is registered. Returns true if a delivery has to be
+    // queued for this animator along with the rest of the frame, false if there's nothing new or one is still pending.
+    boolean frame(long now) {
+        if (now - startTime < 0)
+            return false;
 
-                        SwingUtilities.invokeLater(()-> {
-                            updateScheduled.set(true);
-                            update(easing.apply(frameFraction));
-                            updateScheduled.set(false);
-                        });
+        boolean metrics = FrameMetrics.isEnabled();
 
-                        if (running)
-                            lastUpdateTime = System.currentTimeMillis();
-                    }
-                }
-            }, delayTime, expectedDelay, TimeUnit.MILLISECONDS);
+        // Without frame skip every frame has to be shown, so wait for the pending one instead of replacing it
+        if (!frameSkip && mailbox.get() != EMPTY) {
+            if (metrics)
+                countCoalesced();
+
+            return false;
         }
+
+        frameTime = now;
+        tick();
+
+        if (running)
+            lastUpdateTime = TimeUnit.NANOSECONDS.toMillis(now);
+
+        if (metrics)
+            tickCount++;
+
+        if (mailbox.getAndSet(Float.floatToRawIntBits(fraction)) == EMPTY)
+            return true;
+
+        // The EDT hasn't taken the previous value yet: it will get this one instead
+        if (metrics)
+            countCoalesced();
+
+        return false;
+    }
+
+    private void countCoalesced() {
+        coalescedFrameCount++;
+        FrameMetrics.coalescedFrames.incrementAndGet();
+    }
+
+    // Called on the EDT by the frame clock's batched dispatch, delivers the latest fraction published (if any)
+    void deliver() {
+        int bits = mailbox.getAndSet(EMPTY);
+
+        if (bits != EMPTY)
+            deliver(Float.intBitsToFloat(bits));
+    }
+
+    void deliver(float frameFraction) {
+        updateAndMark(easing.apply(frameFraction));
+    }
+
+    // Marks the whole repaint target dirty unless the update reported a region itself; the frame clock flushes
+    private void updateAndMark(float fraction) {
+        markedDirty = false;
+        update(fraction);
+
+        JComponent target = repaintTarget;
+
+        if (target != null && !markedDirty)
+            RepaintCoalescer.mark(target);
     }
 
     /**
@@ -162,11 +230,9 @@ public abstract class Animator {
      * Pauses the animation. Can be resumed.
      */
     public void pause() {
-        if (ticker != null) {
-            ticker.cancel(false);
-            ticker = null;
+        if (running) {
+            FrameClock.unregister(this);
             running = false;
-            lastUpdateTime = 0;
         }
     }
 
@@ -186,36 +252,54 @@ public abstract class Animator {
     public void cancel() {
         pause();
         fraction = 0;
-        SwingUtilities.invokeLater(() -> update(0));
+        // A pending frame would otherwise be delivered after the reset
+        mailbox.set(EMPTY);
+        FrameClock.dispatch(() -> {
+            updateAndMark(0);
+            RepaintCoalescer.flush();
+        });
     }
 
     /**
-     * Ticker function. Updates the fraction by adding the appropriate delta value to it. Frame skip is done by dividing
-     * the actual delay (since last frame) by the expected delay, and multiplying the fraction delta by this value.
+     * Ticker function. Computes the fraction from the time elapsed since the animation started (or since it was last
+     * paused or changed speed), its duration, speed and direction. With frame skip enabled the elapsed time is the
+     * actual time, so the animation always finishes on time regardless of how many frames could be rendered; with frame
+     * skip disabled every tick counts as exactly one frame period.
      */
     protected void tick() {
-        float multiplier;
+        final double current;
 
-        if (lastUpdateTime == 0 || !frameSkip)
-            multiplier = 1;
-        else {
-            long time = System.currentTimeMillis();
-            multiplier = (float) (time - lastUpdateTime) / expectedDelay;
-        }
+        synchronized (this) {
+            // Frame skip can be toggled at any time, start a new timeline from the last frame when that happens
+            if (timelineSkips != frameSkip) {
+                rebase();
+                timelineSkips = frameSkip;
+            }
+
+            // Same when the frame rate changes (manually or adaptively) with frame skip disabled, so each tick keeps
+            // counting as exactly one period of the frames actually being pulsed
+            long period = FrameClock.getPeriod();
+
+            if (!timelineSkips && expectedDelay != period) {
+                rebase();
+                expectedDelay = period;
+            }
 
-        final float oldFraction = fraction;
+            frameCount++;
 
-        if (reverse)
-            fraction = oldFraction - (fractionDelta * speedFactor) * multiplier;
-        else
-            fraction = oldFraction + (fractionDelta * speedFactor) * multiplier;
+            long elapsed = timelineSkips ? frameTime - baseTime : frameCount * expectedDelay;
+            double delta = speedFactor * (double) elapsed / durationNanos;
+
+            current = reverse ? baseFraction - delta : baseFraction + delta;
+            progress = loops ? current - Math.floor(current) : current;
+        }
 
         if (loops) {
-            if (backToStart && fraction <= 0) {
+            if (backToStart && reverse && current <= 0)
                 stop();
-            }
-            loop0();
-        } else if (fraction > 1) {
+            else
+                fraction = (float) progress;
+        } else if (!reverse && current >= 1) {
             fraction = 1;
 
             if (freeze) {
@@ -223,19 +307,31 @@ public abstract class Animator {
                 onAnimationFinished();
             } else
                 stop();
-        } else if (fraction < 0) {
+        } else if (reverse && current <= 0) {
             stop();
+        } else {
+            fraction = (float) Math.min(Math.max(current, 0), 1);
         }
     }
 
-    // Loops the fraction
-    private void loop0() {
-        final float fractionMod = fraction % 1;
+    // Moves every timestamp of the timeline by offset nanoseconds, for when the time source changes under a running
+    // animation (a virtual clock being installed or uninstalled)
+    void shiftTime(long offset) {
+        synchronized (this) {
+            startTime += offset;
+            baseTime += offset;
+            frameTime += offset;
+        }
+    }
 
-        fraction = fractionMod;
+    // Restarts the timeline at the last computed frame, keeping the progress made so far
+    private void rebase() {
+        if (frameCount == 0)
+            return;
 
-        if (fraction < 0)
-            fraction = 1 - fractionMod;
+        baseTime = frameTime;
+        baseFraction = progress;
+        frameCount = 0;
     }
 
     /**
@@ -295,6 +391,13 @@ public abstract class Animator {
         this.easing = easing;
     }
 
+    /**
+     * @return Easing function applied to the fraction
+     */
+    public Easing getEasing() {
+        return easing;
+    }
+
     /**
      * Sets the duration of the animation. Effective after pausing/stopping and playing again.
      * @param duration Animation duration in milliseconds
@@ -318,7 +421,11 @@ public abstract class Animator {
      */
     public void setSpeed(float factor) {
         if (factor <= 0) throw new IllegalArgumentException("Speed factor can't be less than or equal to 0");
-        this.speedFactor = factor;
+
+        synchronized (this) {
+            rebase();
+            this.speedFactor = factor;
+        }
     }
 
     /**
@@ -349,23 +456,71 @@ public abstract class Animator {
     }
 
     /**
-     * Gets the global FPS target for the animations.
+     * Gets the global FPS target for the animations, rounded to the nearest integer.
      * @return Global FPS target
+     * @see Animator#getExactGlobalFPSTarget()
      */
     public static int getGlobalFPSTarget() {
+        return (int) Math.round(FPSTarget);
+    }
+
+    /**
+     * Gets the global FPS target for the animations exactly as it was set, including fractional rates (e.g: 59.94).
+     * @return Global FPS target
+     */
+    public static double getExactGlobalFPSTarget() {
         return FPSTarget;
     }
 
     /**
-     * Sets the global FPS target for the animations. Since the animator runs on millisecond resolution, there won't be
-     * much granularity (e.g: At 1ms delay, we theoretically get 1000 FPS; at 2 ms delay, we get 500; there's no way to
-     * get, say, 750 FPS). While using nanosecond delay would solve this issue, it seems unnecessary given the scope of
-     * this library. Takes effect on all animations that start after this function is called; animations currently
-     * running need to be restarted (call {@code pause()} then {@code play()}) for this to take effect.
+     * Sets the global FPS target for the animations.
      * @param FPSTarget FPS target for all animations
+     * @see Animator#setGlobalFPSTarget(double)
      */
     public static void setGlobalFPSTarget(int FPSTarget) {
+        setGlobalFPSTarget((double) FPSTarget);
+    }
+
+    /**
+     * Sets the global FPS target for the animations. Frames are timed with nanosecond resolution, so any rate can be
+     * targeted accurately, including fractional ones (e.g: 144, 165 or 59.94 FPS). The frame rate changes on the next
+     * frame and running animations adapt right away.
+     * @param FPSTarget FPS target for all animations
+     * @throws IllegalArgumentException if {@code FPSTarget} is less than or equal to 0
+     */
+    public static void setGlobalFPSTarget(double FPSTarget) {
+        if (!(FPSTarget > 0)) throw new IllegalArgumentException("FPS target can't be less than or equal to 0");
         Animator.FPSTarget = FPSTarget;
+        FrameClock.setFrameRate(FPSTarget);
+    }
+
+    /**
+     * Enables or disables the adaptive frame rate. When enabled, the frame rate is lowered in steps (the target divided
+     * by 2, 3 and 4) while the EDT or the animation thread can't keep up, and raised back towards the target once they
+     * have headroom again. Animations still take the same time to complete, they are just updated less often, which
+     * sheds work on slow or busy machines. Disabled by default.
+     * @param adaptive If true, the frame rate adapts to the load
+     * @see Animator#getEffectiveFPS()
+     */
+    public static void setAdaptiveFrameRate(boolean adaptive) {
+        FrameClock.setAdaptive(adaptive);
+    }
+
+    /**
+     * Indicates if the adaptive frame rate is enabled.
+     * @return true if the frame rate adapts to the load
+     */
+    public static boolean isAdaptiveFrameRateEnabled() {
+        return FrameClock.isAdaptive();
+    }
+
+    /**
+     * Returns the frame rate animations are actually being pulsed at. Equal to the global FPS target unless the adaptive
+     * frame rate has lowered it.
+     * @return Effective frames per second
+     */
+    public static double getEffectiveFPS() {
+        return (double) TimeUnit.SECONDS.toNanos(1) / FrameClock.getPeriod();
     }
 
     /**
@@ -468,22 +623,90 @@ public abstract class Animator {
         return this.freeze;
     }
 
+    /**
+     * Returns the amount of frames this animator has ticked while {@link FrameMetrics} were enabled.
+     * @return Tick count
+     */
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    /**
+     * Returns the amount of frames this animator produced while its previous one was still waiting for the EDT, counted
+     * while {@link FrameMetrics} were enabled. With frame skip the newer frame replaces the pending one, without it the
+     * frame is held back.
+     * @return Coalesced frame count
+     */
+    public long getCoalescedFrameCount() {
+        return coalescedFrameCount;
+    }
+
+    /**
+     * Binds this animation to a component that will be repainted after every update, so {@code update()} doesn't need
+     * to call {@code repaint()} itself. Repaints are coalesced: however many animations are bound to a component, it
+     * gets a single repaint per frame, issued once every update of the frame has run. By default the whole component
+     * is repainted; an update can narrow it down by reporting the area it changed through
+     * {@link Animator#markDirty(int, int, int, int)}.
+     * @param target Component to repaint, null to stop repainting
+     */
+    public void setRepaintTarget(JComponent target) {
+        this.repaintTarget = target;
+    }
+
+    /**
+     * @return Component repainted after every update, null if none
+     */
+    public JComponent getRepaintTarget() {
+        return repaintTarget;
+    }
+
+    /**
+     * Marks the whole repaint target as dirty. Must be called from {@code update()}.
+     * @throws IllegalStateException If no repaint target is set
+     */
+    public void markDirty() {
+        RepaintCoalescer.mark(target());
+        markedDirty = true;
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Regions marked by every animation
+     * bound to the same component during a frame are joined into one repaint. Must be called from {@code update()},
+     * usually with both the previous and the new bounds of whatever moved.
+     * @param x X coordinate of the region
+     * @param y Y coordinate of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     * @throws IllegalStateException If no repaint target is set
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        RepaintCoalescer.mark(target(), x, y, width, height);
+        markedDirty = true;
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space.
+     * @param region Region to repaint
+     * @throws IllegalStateException If no repaint target is set
+     * @see Animator#markDirty(int, int, int, int)
+     */
+    public void markDirty(Rectangle region) {
+        markDirty(region.x, region.y, region.width, region.height);
+    }
+
+    private JComponent target() {
+        JComponent target = repaintTarget;
+
+        if (target == null)
+            throw new IllegalStateException("No repaint target set");
+
+        return target;
+    }
+
     /**
      * @return true if the animation is currently running
      */
     public boolean isRunning() {
         return running;
     }
-
-    private static ScheduledExecutorService createScheduler() {
-        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
-            final Thread thread = new Thread(r, "Animator Thread");
-            thread.setDaemon(true);
-            thread.setPriority(Thread.MAX_PRIORITY);
-            return thread;
-        });
-        executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
-        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
-        return executor;
-    }
 }
@@ -0,0 +1,211 @@
+package io.github.z3r0x24.jani;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An easing function defined by a cubic Bezier curve going from (0, 0) to (1, 1), in the same fashion as CSS's
+ * {@code cubic-bezier(x1, y1, x2, y2)}. Instances are obtained through
+ * {@link Easing#cubicBezier(float, float, float, float)} and are shared: the same control points return the same
+ * instance for as long as it's in use.
+ * <p>
+ * Evaluating the curve means finding the curve parameter for the given fraction (the x coordinate) and returning the y
+ * coordinate for it. Like browsers do, the parameter is found with a few Newton-Raphson iterations starting from a guess
+ * taken from a table of precomputed samples, falling back to bisection where the curve is too flat for Newton's method
+ * to converge.
+ */
+public final class CubicBezierEasing implements Easing {
+    private static final int SAMPLES = 11;
+    private static final double SAMPLE_STEP = 1.0 / (SAMPLES - 1);
+
+    private static final int NEWTON_ITERATIONS = 4;
+    private static final double NEWTON_MIN_SLOPE = 0.001;
+    private static final double PRECISION = 0.0000001;
+    private static final int SUBDIVISION_MAX_ITERATIONS = 24;
+
+    // Weak on both ends so curves built at runtime (e.g. from an editor) don't stay alive forever. Each instance holds
+    // its own key, so the entry lives exactly as long as the curve does
+    private static final Map<Key, WeakReference<CubicBezierEasing>> cache = new WeakHashMap<>();
+
+    private final float x1, y1, x2, y2;
+    private final Key key;
+
+    // Polynomial coefficients: B(t) = ((a * t + b) * t + c) * t
+    private final double ax, bx, cx;
+    private final double ay, by, cy;
+
+    private final double[] samples = new double[SAMPLES];
+    private final boolean linear;
+
+    private CubicBezierEasing(float x1, float y1, float x2, float y2, Key key) {
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.key = key;
+
+        cx = 3.0 * x1;
+        bx = 3.0 * (x2 - x1) - cx;
+        ax = 1.0 - cx - bx;
+
+        cy = 3.0 * y1;
+        by = 3.0 * (y2 - y1) - cy;
+        ay = 1.0 - cy - by;
+
+        linear = x1 == y1 && x2 == y2;
+
+        for (int i = 0; i < SAMPLES; i++)
+            samples[i] = curveX(i * SAMPLE_STEP);
+    }
+
+    static CubicBezierEasing of(float x1, float y1, float x2, float y2) {
+        if (!(x1 >= 0 && x1 <= 1 && x2 >= 0 && x2 <= 1))
+            throw new IllegalArgumentException("Control point x values must be in range (0 <= x <= 1): " + x1 + ", " + x2);
+
+        if (!Float.isFinite(y1) || !Float.isFinite(y2))
+            throw new IllegalArgumentException("Control point y values must be finite: " + y1 + ", " + y2);
+
+        // Look up with the bare control points, the coefficients and sample table are only computed on a miss
+        Key key = new Key(x1, y1, x2, y2);
+
+        synchronized (cache) {
+            WeakReference<CubicBezierEasing> ref = cache.get(key);
+            CubicBezierEasing existing = ref != null ? ref.get() : null;
+
+            if (existing != null)
+                return existing;
+
+            CubicBezierEasing easing = new CubicBezierEasing(x1, y1, x2, y2, key);
+            cache.put(key, new WeakReference<>(easing));
+            return easing;
+        }
+    }
+
+    @Override
+    public float apply(float fraction) {
+        if (linear || fraction <= 0 || fraction >= 1)
+            return fraction;
+
+        return (float) curveY(solve(fraction));
+    }
+
+    private double curveX(double t) {
+        return ((ax * t + bx) * t + cx) * t;
+    }
+
+    private double curveY(double t) {
+        return ((ay * t + by) * t + cy) * t;
+    }
+
+    private double slopeX(double t) {
+        return (3.0 * ax * t + 2.0 * bx) * t + cx;
+    }
+
+    // Finds the curve parameter t such that curveX(t) = x
+    private double solve(double x) {
+        int sample = 1;
+
+        while (sample < SAMPLES - 1 && samples[sample] <= x)
+            sample++;
+
+        sample--;
+
+        // Initial guess: linear interpolation within the sample interval containing x
+        double intervalStart = sample * SAMPLE_STEP;
+        double dist = (x - samples[sample]) / (samples[sample + 1] - samples[sample]);
+        double guess = intervalStart + dist * SAMPLE_STEP;
+
+        if (slopeX(guess) >= NEWTON_MIN_SLOPE) {
+            for (int i = 0; i < NEWTON_ITERATIONS; i++) {
+                double slope = slopeX(guess);
+
+                if (slope == 0)
+                    break;
+
+                guess -= (curveX(guess) - x) / slope;
+            }
+
+            // Newton converges slowly next to flat spots of the curve, bisect whenever it didn't make it
+            if (Math.abs(curveX(guess) - x) <= PRECISION)
+                return guess;
+        }
+
+        return bisect(x, intervalStart, intervalStart + SAMPLE_STEP);
+    }
+
+    private double bisect(double x, double from, double to) {
+        double t = from;
+
+        for (int i = 0; i < SUBDIVISION_MAX_ITERATIONS; i++) {
+            t = from + (to - from) / 2;
+            double difference = curveX(t) - x;
+
+            if (Math.abs(difference) <= PRECISION)
+                break;
+
+            if (difference > 0)
+                to = t;
+            else
+                from = t;
+        }
+
+        return t;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+
+        if (!(o instanceof CubicBezierEasing))
+            return false;
+
+        return key.equals(((CubicBezierEasing) o).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "cubic-bezier(" + x1 + ", " + y1 + ", " + x2 + ", " + y2 + ")";
+    }
+
+    // Control points alone, cheap to build for cache lookups
+    private static final class Key {
+        private final float x1, y1, x2, y2;
+
+        Key(float x1, float y1, float x2, float y2) {
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+
+            if (!(o instanceof Key))
+                return false;
+
+            Key that = (Key) o;
+
+            return Float.compare(x1, that.x1) == 0 && Float.compare(y1, that.y1) == 0 &&
+                    Float.compare(x2, that.x2) == 0 && Float.compare(y2, that.y2) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Float.hashCode(x1);
+            result = 31 * result + Float.hashCode(y1);
+            result = 31 * result + Float.hashCode(x2);
+            result = 31 * result + Float.hashCode(y2);
+            return result;
+        }
+    }
+}
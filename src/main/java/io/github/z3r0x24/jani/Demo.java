@@ -80,7 +80,6 @@ public class Demo {
             @Override
             protected void update(int x) {
                 angle = x;
-                panel.repaint();
             }
         };
 
@@ -88,7 +87,6 @@ public class Demo {
             @Override
             protected void update(int x) {
                 flashOpacity = x;
-                panel.repaint();
             }
         };
 
@@ -96,7 +94,6 @@ public class Demo {
             @Override
             protected void update(int x) {
                 angle = x;
-                panel.repaint();
             }
 
             @Override
@@ -112,7 +109,6 @@ public class Demo {
             @Override
             protected void update(int x) {
                 arc = x;
-                panel.repaint();
             }
 
             @Override
@@ -126,7 +122,6 @@ public class Demo {
             @Override
             protected void update(int x) {
                 opacity = x;
-                panel.repaint();
             }
 
             @Override
@@ -136,6 +131,10 @@ public class Demo {
             }
         };
 
+        // Every animation draws on the same panel: bound to it, they share a single repaint per frame
+        for (Animation animation : new Animation[] {opacityAnimation, arcAnimation, rotate1, flashAnimation, rotate2})
+            animation.setRepaintTarget(panel);
+
         currentAnimation = opacityAnimation;
 
         opacityAnimation.freeze(true);
@@ -9,6 +9,63 @@ package io.github.z3r0x24.jani;
 public interface Easing {
     float apply(float fraction);
 
+    /**
+     * Applies this function to {@code in[from]} to {@code in[to - 1]}, writing each result at the same index of
+     * {@code out}. Both arrays may be the same one. Results are exactly the ones {@link #apply(float)} gives; the
+     * {@code Default} curves override this with loops specialized for each curve, which avoid one call per element and
+     * leave the compiler room to vectorize them.
+     * @param in Fractions
+     * @param out Destination array
+     * @param from First index, inclusive
+     * @param to Last index, exclusive
+     * @throws IndexOutOfBoundsException If the range doesn't fit in either array
+     */
+    default void applyAll(float[] in, float[] out, int from, int to) {
+        Default.checkRange(in, out, from, to);
+
+        for (int i = from; i < to; i++)
+            out[i] = apply(in[i]);
+    }
+
+    /**
+     * Returns a tabulated version of {@code easing} at the default resolution.
+     * @param easing Easing function to sample
+     * @return Shared lookup table for the function
+     * @see Easing#tabulated(Easing, int)
+     */
+    static TabulatedEasing tabulated(Easing easing) {
+        return TabulatedEasing.of(easing, TabulatedEasing.DEFAULT_RESOLUTION);
+    }
+
+    /**
+     * Returns a tabulated version of {@code easing}: the function is sampled once into a lookup table and then evaluated
+     * by linear interpolation, which is considerably cheaper for curves using trigonometric or exponential functions.
+     * The table is shared by everyone asking for the same function and resolution.
+     * @param easing Easing function to sample
+     * @param resolution Amount of intervals to split the [0, 1] range into
+     * @return Shared lookup table for the function
+     * @throws IllegalArgumentException if {@code easing} is null or {@code resolution} is less than 1
+     * @see TabulatedEasing#getMaxError()
+     */
+    static TabulatedEasing tabulated(Easing easing, int resolution) {
+        return TabulatedEasing.of(easing, resolution);
+    }
+
+    /**
+     * Returns an easing function defined by a cubic Bezier curve, equivalent to CSS's
+     * {@code cubic-bezier(x1, y1, x2, y2)}. The curve starts at (0, 0) and ends at (1, 1); the parameters are its two
+     * control points. Identical control points share the same instance.
+     * @param x1 First control point x coordinate, between 0 and 1
+     * @param y1 First control point y coordinate
+     * @param x2 Second control point x coordinate, between 0 and 1
+     * @param y2 Second control point y coordinate
+     * @return Bezier easing function
+     * @throws IllegalArgumentException if {@code x1} or {@code x2} is out of range, or a y value isn't finite
+     */
+    static CubicBezierEasing cubicBezier(float x1, float y1, float x2, float y2) {
+        return CubicBezierEasing.of(x1, y1, x2, y2);
+    }
+
     enum Default implements Easing {
         LINEAR(x -> x),
         EASE_IN_SIN(x -> 1 - (float) Math.cos(x * Math.PI / 2)),
@@ -164,5 +221,130 @@ public interface Easing {
         public float apply(float fraction) {
             return delegate.apply(fraction);
         }
+
+        // Every loop repeats its curve's expression exactly (same operations in the same order) so the results match
+        // apply() bit for bit. Curves built on Math.pow/sin/cos can't be vectorized and share the generic loop.
+        @Override
+        public void applyAll(float[] in, float[] out, int from, int to) {
+            checkRange(in, out, from, to);
+
+            switch (this) {
+                case LINEAR:
+                    if (in != out)
+                        System.arraycopy(in, from, out, from, to - from);
+                    return;
+                case EASE_IN_QUAD:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = x * x;
+                    }
+                    return;
+                case EASE_OUT_QUAD:
+                    for (int i = from; i < to; i++) {
+                        float t = 1 - in[i];
+                        out[i] = 1 - (t * t);
+                    }
+                    return;
+                case EASE_IN_OUT_QUAD:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        float t = -2 * x + 2;
+                        out[i] = x < 0.5f ? 2 * x * x : 1 - (t * t) / 2;
+                    }
+                    return;
+                case EASE_IN_CUBIC:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = x * x * x;
+                    }
+                    return;
+                case EASE_OUT_CUBIC:
+                    for (int i = from; i < to; i++) {
+                        float t = 1 - in[i];
+                        out[i] = 1 - (t * t * t);
+                    }
+                    return;
+                case EASE_IN_OUT_CUBIC:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        float t = -2 * x + 2;
+                        out[i] = x < 0.5f ? 4 * x * x * x : 1 - (t * t * t) / 2;
+                    }
+                    return;
+                case EASE_IN_QUART:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = x * x * x * x;
+                    }
+                    return;
+                case EASE_OUT_QUART:
+                    for (int i = from; i < to; i++) {
+                        float t = 1 - in[i];
+                        out[i] = 1 - (t * t * t * t);
+                    }
+                    return;
+                case EASE_IN_OUT_QUART:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        float t = -2 * x + 2;
+                        out[i] = x < 0.5f ? 8 * x * x * x * x : 1 - (t * t * t * t) / 2;
+                    }
+                    return;
+                case EASE_IN_QUINT:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = x * x * x * x * x;
+                    }
+                    return;
+                case EASE_OUT_QUINT:
+                    for (int i = from; i < to; i++) {
+                        float t = 1 - in[i];
+                        out[i] = 1 - (t * t * t * t * t);
+                    }
+                    return;
+                case EASE_IN_OUT_QUINT:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        float t = -2 * x + 2;
+                        out[i] = x < 0.5f ? 16 * x * x * x * x * x : 1 - (t * t * t * t * t) / 2;
+                    }
+                    return;
+                case EASE_IN_CIRC:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = 1 - (float) Math.sqrt(1 - (x * x));
+                    }
+                    return;
+                case EASE_OUT_CIRC:
+                    for (int i = from; i < to; i++) {
+                        float t = in[i] - 1;
+                        out[i] = (float) Math.sqrt(1 - (t * t));
+                    }
+                    return;
+                case EASE_IN_BACK:
+                    for (int i = from; i < to; i++) {
+                        float x = in[i];
+                        out[i] = 2.70158f * x * x * x - 1.70158f * x * x;
+                    }
+                    return;
+                case EASE_OUT_BACK:
+                    for (int i = from; i < to; i++) {
+                        float t = in[i] - 1;
+                        out[i] = 1 + 2.70158f * t * t * t + 1.70158f * t * t;
+                    }
+                    return;
+                default:
+                    Easing delegate = this.delegate;
+
+                    for (int i = from; i < to; i++)
+                        out[i] = delegate.apply(in[i]);
+            }
+        }
+
+        static void checkRange(float[] in, float[] out, int from, int to) {
+            if (from < 0 || from > to || to > in.length || to > out.length)
+                throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for lengths " +
+                        in.length + " and " + out.length);
+        }
     }
 }
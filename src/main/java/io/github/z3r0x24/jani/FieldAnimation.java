@@ -0,0 +1,399 @@
+package io.github.z3r0x24.jani;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Animates a large set of values (a field) between two states with a single animator, e.g. every bar or marker of a
+ * chart moving to new data. Start and end values are kept in primitive arrays and every frame interpolates all of them
+ * at the same eased fraction into one result buffer, which is handed to {@link #update(float[])}.
+ * <p>
+ * Frames are evaluated on the animation thread as part of the frame tick, into a spare buffer that is handed over to
+ * the EDT once complete (triple buffering: one buffer being filled, one ready and one being shown), so the EDT only
+ * swaps buffers before calling {@code update}. Past {@link #getParallelThreshold() a threshold} (by default
+ * {@value #DEFAULT_PARALLEL_THRESHOLD} values) the field is split into chunks evaluated in parallel on the common
+ * {@link ForkJoinPool}; below it, splitting costs more than it saves. Very large fields do hold up the animation thread
+ * (and with it every other animation) for as long as a frame takes to evaluate.
+ */
+public abstract class FieldAnimation {
+    /**
+     * Default amount of values from which frames are evaluated in parallel.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 65536;
+
+    // Smallest chunk worth handing to another thread
+    private static final int MIN_CHUNK = 8192;
+
+    private final Animator animator;
+
+    private final float[] from;
+    private final float[] deltas;
+    // Guards from and deltas against the animation thread while a transition replaces them
+    private final Object lock = new Object();
+    // Bumped on every transition, so frames evaluated for the previous one are never shown
+    private int generation;
+
+    // Filled by the animation thread, handed over through ready and shown on the EDT
+    private Buffer back;
+    private final AtomicReference<Buffer> ready;
+    private Buffer front;
+
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    public FieldAnimation(float[] from, float[] to, float durationSeconds) {
+        this(from, to, durationSeconds, 0, false, Easing.Default.LINEAR);
+    }
+
+    public FieldAnimation(float[] from, float[] to, float durationSeconds, Easing easing) {
+        this(from, to, durationSeconds, 0, false, easing);
+    }
+
+    public FieldAnimation(float[] from, float[] to, float durationSeconds, float delaySeconds, boolean loops,
+                          Easing easing) {
+        if (from == null || to == null)
+            throw new IllegalArgumentException("Start and end values can't be null");
+
+        if (from.length != to.length)
+            throw new IllegalArgumentException("Start and end values must have the same length: " + from.length +
+                    ", " + to.length);
+
+        this.from = from.clone();
+        this.deltas = new float[to.length];
+
+        for (int i = 0; i < deltas.length; i++)
+            deltas[i] = to[i] - from[i];
+
+        this.back = new Buffer(from.clone());
+        this.ready = new AtomicReference<>(new Buffer(from.clone()));
+        this.front = new Buffer(from.clone());
+
+        this.animator = new Animator(Math.round(durationSeconds * 1000), Math.round(delaySeconds * 1000), loops, easing) {
+            @Override
+            protected void tick() {
+                super.tick();
+                prepare(getEasing().apply(fraction));
+            }
+
+            @Override
+            public void update(float fraction) {
+                FieldAnimation.this.update(show(fraction));
+            }
+
+            @Override
+            protected void onAnimationFinished() {
+                FieldAnimation.this.onAnimationFinished();
+            }
+        };
+    }
+
+    // Animation thread: evaluates the frame into the back buffer and publishes it, taking the previous ready one back
+    private void prepare(float fraction) {
+        Buffer buffer = back;
+
+        synchronized (lock) {
+            evaluate(fraction, buffer.values);
+            buffer.generation = generation;
+        }
+
+        buffer.fraction = fraction;
+        buffer.fresh = true;
+        back = ready.getAndSet(buffer);
+    }
+
+    // EDT: swaps in the newest ready buffer. Falls back to evaluating here when nothing matches the fraction asked for,
+    // which only happens outside regular frames (e.g. the reset to 0 when cancelling).
+    private float[] show(float fraction) {
+        Buffer current = front;
+
+        if (ready.get().fresh) {
+            current.fresh = false;
+            current = ready.getAndSet(current);
+            front = current;
+        }
+
+        if (current.fraction != fraction || current.generation != generation) {
+            evaluate(fraction, current.values);
+            current.fraction = fraction;
+            current.generation = generation;
+        }
+
+        return current.values;
+    }
+
+    private void evaluate(float fraction, float[] target) {
+        int size = target.length;
+
+        if (size < parallelThreshold || ForkJoinPool.getCommonPoolParallelism() < 2) {
+            interpolate(fraction, target, 0, size);
+            return;
+        }
+
+        int chunk = Math.max(MIN_CHUNK, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        ForkJoinPool.commonPool().invoke(new Chunk(fraction, target, 0, size, chunk));
+    }
+
+    private void interpolate(float fraction, float[] target, int start, int end) {
+        float[] from = this.from;
+        float[] deltas = this.deltas;
+
+        for (int i = start; i < end; i++)
+            target[i] = from[i] + deltas[i] * fraction;
+    }
+
+    private static final class Buffer {
+        private final float[] values;
+        private float fraction;
+        private int generation;
+        // Set when published by the animation thread, cleared when handed back by the EDT
+        private volatile boolean fresh;
+
+        Buffer(float[] values) {
+            this.values = values;
+        }
+    }
+
+    // Splits the range in halves until it's small enough to interpolate directly
+    private final class Chunk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final float fraction;
+        private final float[] target;
+        private final int start, end, chunk;
+
+        Chunk(float fraction, float[] target, int start, int end, int chunk) {
+            this.fraction = fraction;
+            this.target = target;
+            this.start = start;
+            this.end = end;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= chunk) {
+                interpolate(fraction, target, start, end);
+                return;
+            }
+
+            int middle = (start + end) >>> 1;
+            invokeAll(new Chunk(fraction, target, start, middle, chunk),
+                    new Chunk(fraction, target, middle, end, chunk));
+        }
+    }
+
+    /**
+     * Override this method to update (repaint) whatever the values represent. Buffers are recycled and get overwritten
+     * on later frames, copy the values if they need to be kept around.
+     * @param values Interpolated values, one per element of the field
+     */
+    protected abstract void update(float[] values);
+
+    /**
+     * This method is called upon the animation finishing or the {@code stop()} method being called. Useful for chaining
+     * animations.
+     */
+    public void onAnimationFinished(){}
+
+    /**
+     * Starts a new transition from the values last delivered to {@code to}, always playing forward from the beginning.
+     * Like the buffer handed to {@code update}, must only be used from the thread updates are delivered on (the EDT).
+     * @param to New end values, same length as the field
+     * @throws IllegalStateException If called from another thread
+     */
+    public void transitionTo(float[] to) {
+        if (!FrameClock.isDeliveryThread())
+            throw new IllegalStateException("Transitions must be started from the thread updates are delivered on");
+
+        if (to == null || to.length != from.length)
+            throw new IllegalArgumentException("End values must have the same length as the field: " + from.length);
+
+        synchronized (lock) {
+            System.arraycopy(front.values, 0, from, 0, from.length);
+
+            for (int i = 0; i < deltas.length; i++)
+                deltas[i] = to[i] - from[i];
+
+            generation++;
+        }
+
+        // Resets to fraction 0, which already evaluates to the new start values
+        animator.cancel();
+        animator.forward();
+    }
+
+    /**
+     * @return Amount of values in the field
+     */
+    public int size() {
+        return from.length;
+    }
+
+    /**
+     * Sets the amount of values from which frames are evaluated in parallel.
+     * @param threshold Amount of values, {@code Integer.MAX_VALUE} to never go parallel
+     */
+    public void setParallelThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Threshold can't be less than 1");
+
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * @return Amount of values from which frames are evaluated in parallel
+     */
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Plays the animation in whichever direction it was set before calling this method.
+     */
+    public void play() {
+        animator.play();
+    }
+
+    /**
+     * Plays the animation in whichever direction it was set before calling this method.
+     * @param skipDelay If true, will skip the initial delay.
+     */
+    public void play(boolean skipDelay) {
+        animator.play(skipDelay);
+    }
+
+    /**
+     * Plays the animation ensuring it will go forward.
+     */
+    public void forward() {
+        animator.forward();
+    }
+
+    /**
+     * Plays the animation ensuring it will go backward.
+     */
+    public void backward() {
+        animator.backward();
+    }
+
+    /**
+     * Pauses the animation. Can be resumed.
+     */
+    public void pause() {
+        animator.pause();
+    }
+
+    /**
+     * Stops the animation setting it back to the beginning and calls {@code onAnimationFinished()}.
+     * @see FieldAnimation#cancel()
+     */
+    public void stop() {
+        animator.stop();
+    }
+
+    /**
+     * Stops the animation without calling {@code onAnimationFinished()}.
+     * @see FieldAnimation#stop()
+     */
+    public void cancel() {
+        animator.cancel();
+    }
+
+    /**
+     * Sets the easing function to use. Default functions are given in the {@code Easing.Default} enum.
+     * @param easing Easing interface defining an easing function
+     * @see Animator#setEasing(Easing) More information on easing functions
+     */
+    public void setEasing(Easing easing) {
+        animator.setEasing(easing);
+    }
+
+    /**
+     * Defines whether the animation should loop.
+     * @param loop If true, the animation will loop
+     * @see Animator#loop(boolean) More information on looping
+     */
+    public void loop(boolean loop) {
+        animator.loop(loop);
+    }
+
+    /**
+     * Determines whether the animation will return to the starting point on finishing or it will retain that state.
+     * This only has effect on non-repeating animations.
+     * @param b If true, animation will retain the ending state (fraction at 1)
+     */
+    public void freeze(boolean b) {
+        animator.freeze(b);
+    }
+
+    /**
+     * Binds this animation to a component that will be repainted after every update, coalesced with the other
+     * animations bound to it into one repaint per frame.
+     * @param target Component to repaint, null to stop repainting
+     * @see Animator#setRepaintTarget(JComponent) More information on repaint coalescing
+     */
+    public void setRepaintTarget(JComponent target) {
+        animator.setRepaintTarget(target);
+    }
+
+    /**
+     * @return Component repainted after every update, null if none
+     */
+    public JComponent getRepaintTarget() {
+        return animator.getRepaintTarget();
+    }
+
+    /**
+     * Marks the whole repaint target as dirty. Must be called from {@code update()}.
+     */
+    public void markDirty() {
+        animator.markDirty();
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param x X coordinate of the region
+     * @param y Y coordinate of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     * @see Animator#markDirty(int, int, int, int)
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        animator.markDirty(x, y, width, height);
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param region Region to repaint
+     */
+    public void markDirty(Rectangle region) {
+        animator.markDirty(region);
+    }
+
+    /**
+     * @return true if the animation is currently running
+     */
+    public boolean isRunning() {
+        return animator.isRunning();
+    }
+
+    /**
+     * Sets the speed of this animation.
+     * @param factor Speed factor
+     */
+    public void setSpeed(float factor) {
+        animator.setSpeed(factor);
+    }
+
+    /**
+     * Returns the current speed of this animation.
+     * @return Speed factor
+     */
+    public float getSpeed() {
+        return animator.getSpeed();
+    }
+}
@@ -0,0 +1,468 @@
+package io.github.z3r0x24.jani;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Central frame pulse shared by every running {@link Animator}. Instead of scheduling one task per animator, a single
+ * thread wakes up once per frame and advances all registered animators in one pass, which keeps every animation on the
+ * same frame boundary. The updates computed during a frame are handed to the EDT together in a single event.
+ * <p>
+ * Frames are paced on {@code System.nanoTime()} against absolute deadlines, so fractional periods (e.g. 144 FPS, about
+ * 6.944 ms) don't drift. The thread parks until shortly before the deadline and yields through the remainder, since
+ * parking alone is only accurate to around a millisecond on some platforms.
+ * <p>
+ * The frame thread only exists while there's something to animate: it's started by the first animator registered,
+ * parks while nothing is running and exits once it has been idle for a second, to be started again by the next
+ * animator. An idle application has no animation threads and no timer wake-ups at all.
+ * <p>
+ * While a {@link VirtualClock} is installed the frame thread stays idle: time comes from the virtual clock, frames are
+ * pulsed by it and updates are delivered right away on the thread driving it instead of on the EDT.
+ * <p>
+ * With the adaptive frame rate enabled, every frame is checked for overload: the thread waking up late, or the EDT not
+ * having run the previous frame's updates yet. When too many frames in a window are overloaded the period is
+ * multiplied by the next integer (60 FPS becomes 30, then 20, then 15); after several calm windows, if the EDT round
+ * trip would fit comfortably in the shorter period, it steps back up. Animations keep their timing either way, they
+ * just get fewer frames.
+ */
+final class FrameClock {
+    // Parking can overshoot, so the last stretch before a deadline is spent yielding instead
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(500);
+    // How long the frame thread waits for new work before exiting
+    private static final long IDLE_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
+    // Adaptive frame rate: frames per evaluation window, share of overloaded frames that steps the rate down, calm
+    // windows needed to step it back up and the lowest rate, as a divisor of the target
+    private static final int ADAPT_WINDOW = 15;
+    private static final int ADAPT_OVERLOAD_PERCENT = 25;
+    private static final int ADAPT_CALM_WINDOWS = 4;
+    private static final int MAX_RATE_DIVISOR = 4;
+
+    private static final CopyOnWriteArrayList<Animator> animators = new CopyOnWriteArrayList<>();
+    private static final ConcurrentLinkedQueue<Batch> batchPool = new ConcurrentLinkedQueue<>();
+
+    private static volatile long period = periodOf(Animator.getExactGlobalFPSTarget());
+    private static volatile VirtualClock virtualClock;
+
+    private static volatile boolean adaptive;
+    private static volatile int rateDivisor = 1;
+    // Batches handed to the EDT and not run yet, and the longest post-to-finish time of the ones run, while adaptive
+    private static final AtomicInteger pendingBatches = new AtomicInteger();
+    private static final AtomicLong worstRoundTrip = new AtomicLong();
+    // Evaluation state, only touched by the frame thread
+    private static int windowFrames, overloadedFrames, calmWindows;
+
+    // Previous pulse, for measuring frame intervals. Only touched by whoever is pulsing.
+    private static long lastPulse;
+    private static boolean hasLastPulse;
+
+    // Frame thread and Windows timer accuracy thread, null while not running. Guarded by the class lock.
+    private static Thread thread;
+    private static Thread timerAccuracyThread;
+
+    private FrameClock() {}
+
+    /**
+     * Adds an animator to the active set, waking the frame thread up if it was idle.
+     * @param animator Animator to advance on every frame
+     */
+    static void register(Animator animator) {
+        animators.addIfAbsent(animator);
+        wake();
+    }
+
+    /**
+     * Removes an animator from the active set. The frame thread goes idle once nothing is left to animate.
+     * @param animator Animator to remove
+     */
+    static void unregister(Animator animator) {
+        animators.remove(animator);
+    }
+
+    /**
+     * Sets the frame rate of the pulse. Takes effect from the next frame on.
+     * @param fps Frames per second, may be fractional
+     */
+    static void setFrameRate(double fps) {
+        period = periodOf(fps);
+        rateDivisor = 1;
+    }
+
+    /**
+     * @return Time between frames in nanoseconds, including any adaptive slow down
+     */
+    static long getPeriod() {
+        return period * rateDivisor;
+    }
+
+    /**
+     * Enables or disables the adaptive frame rate. Disabling it goes back to the full frame rate right away.
+     * @param enabled If true, the frame rate is lowered while the EDT can't keep up
+     */
+    static void setAdaptive(boolean enabled) {
+        adaptive = enabled;
+
+        if (!enabled)
+            rateDivisor = 1;
+    }
+
+    /**
+     * @return Whether the adaptive frame rate is enabled
+     */
+    static boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return Current time in nanoseconds, from the virtual clock if one is installed
+     */
+    static long now() {
+        VirtualClock clock = virtualClock;
+        return clock != null ? clock.now() : System.nanoTime();
+    }
+
+    /**
+     * Replaces the real time pulse with a virtual clock. Animators already registered are moved onto its time.
+     * @param clock Clock to install
+     * @throws IllegalStateException If another virtual clock is already installed
+     */
+    static synchronized void install(VirtualClock clock) {
+        if (virtualClock != null)
+            throw new IllegalStateException("A virtual clock is already installed");
+
+        // Running animations carry on in virtual time from where the real time left them
+        long offset = clock.now() - System.nanoTime();
+
+        for (Animator animator : animators)
+            animator.shiftTime(offset);
+
+        virtualClock = clock;
+        // Virtual frames must not depend on how loaded the machine was before
+        rateDivisor = 1;
+    }
+
+    /**
+     * Goes back to the real time pulse, if {@code clock} is the one installed.
+     * @param clock Clock to remove
+     */
+    static synchronized void uninstall(VirtualClock clock) {
+        if (virtualClock == clock) {
+            // Running animations carry on in real time from where the virtual time left them
+            long offset = System.nanoTime() - clock.now();
+
+            for (Animator animator : animators)
+                animator.shiftTime(offset);
+
+            virtualClock = null;
+
+            if (!animators.isEmpty())
+                wake();
+        }
+    }
+
+    /**
+     * @return Amount of animators registered
+     */
+    static int getActiveCount() {
+        return animators.size();
+    }
+
+    /**
+     * @return Whether no animator is registered
+     */
+    static boolean isIdle() {
+        return animators.isEmpty();
+    }
+
+    /**
+     * @return Whether the current thread is the one frame updates are delivered on: the EDT, or any thread while a
+     * virtual clock is installed (it's driven from a single thread)
+     */
+    static boolean isDeliveryThread() {
+        return virtualClock != null || SwingUtilities.isEventDispatchThread();
+    }
+
+    /**
+     * Runs {@code update} where frame updates are delivered: on the EDT, or right away while a virtual clock drives the
+     * frames.
+     * @param update Update to run
+     */
+    static void dispatch(Runnable update) {
+        if (virtualClock != null)
+            update.run();
+        else
+            SwingUtilities.invokeLater(update);
+    }
+
+    private static long periodOf(double fps) {
+        return Math.round(TimeUnit.SECONDS.toNanos(1) / fps);
+    }
+
+    // Starts the frame thread if it isn't running, unparks it otherwise. Work must be registered before calling this,
+    // so the thread either sees it or has already handed itself back.
+    private static synchronized void wake() {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            return;
+        }
+
+        thread = new Thread(FrameClock::loop, "Animator Thread");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        thread.start();
+
+        startTimerAccuracyThread();
+    }
+
+    // For some ungodly reason, delay accuracy in Windows is awful (off by about 10 - 15 ms) unless I do this
+    private static void startTimerAccuracyThread() {
+        if (!System.getProperty("os.name").startsWith("Win") || timerAccuracyThread != null)
+            return;
+
+        timerAccuracyThread = new Thread(() -> {
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (Exception ignored) {}
+        });
+
+        timerAccuracyThread.setName("Timer accuracy thread");
+        timerAccuracyThread.setDaemon(true);
+        timerAccuracyThread.start();
+    }
+
+    // Parks until there's something to animate. Returns false if nothing showed up within IDLE_TIMEOUT, in which case
+    // the thread has already been handed back and must exit.
+    private static boolean awaitWork() {
+        long idleSince = System.nanoTime();
+
+        while (animators.isEmpty() || virtualClock != null) {
+            long remaining = IDLE_TIMEOUT - (System.nanoTime() - idleSince);
+
+            if (remaining > 0) {
+                LockSupport.parkNanos(FrameClock.class, remaining);
+                continue;
+            }
+
+            synchronized (FrameClock.class) {
+                // Checked under the lock wake() takes, so an animator registered now will start a new thread
+                if (animators.isEmpty() || virtualClock != null) {
+                    thread = null;
+
+                    if (timerAccuracyThread != null) {
+                        timerAccuracyThread.interrupt();
+                        timerAccuracyThread = null;
+                    }
+
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static void loop() {
+        long deadline = System.nanoTime();
+
+        hasLastPulse = false;
+        resetWindow();
+
+        while (true) {
+            if (animators.isEmpty() || virtualClock != null) {
+                // Nothing to animate (or someone else is pulsing): wait for register() to unpark us, or exit
+                if (!awaitWork())
+                    return;
+
+                // The time spent idle isn't a frame interval, nor a sign of overload
+                hasLastPulse = false;
+                resetWindow();
+
+                deadline = System.nanoTime();
+            }
+
+            waitUntil(deadline);
+
+            // A virtual clock installed while waiting has already moved the animators onto its own time
+            if (virtualClock != null)
+                continue;
+
+            long now = System.nanoTime();
+            long p = getPeriod();
+            // Checked before pulsing, so this frame's own batch doesn't count
+            boolean overloaded = adaptive && (now - deadline > p / 2 || pendingBatches.get() > 0);
+
+            pulse(now);
+
+            deadline += p;
+
+            // More than a frame behind (long GC pause, machine sleeping...): skip ahead instead of bursting frames
+            if (deadline - now <= 0) {
+                if (FrameMetrics.isEnabled())
+                    FrameMetrics.droppedFrames.addAndGet((now - deadline) / p + 1);
+
+                deadline = now + p;
+            }
+
+            if (adaptive)
+                adapt(overloaded);
+        }
+    }
+
+    // Counts overloaded frames over a window, then steps the rate down or (after enough calm windows) back up
+    private static void adapt(boolean overloaded) {
+        windowFrames++;
+
+        if (overloaded)
+            overloadedFrames++;
+
+        if (windowFrames < ADAPT_WINDOW)
+            return;
+
+        int divisor = rateDivisor;
+
+        if (overloadedFrames * 100 >= windowFrames * ADAPT_OVERLOAD_PERCENT) {
+            calmWindows = 0;
+
+            if (divisor < MAX_RATE_DIVISOR)
+                rateDivisor = divisor + 1;
+        } else if (overloadedFrames == 0 && divisor > 1 && ++calmWindows >= ADAPT_CALM_WINDOWS) {
+            calmWindows = 0;
+
+            // Only worth it if the EDT would still have half of the shorter period to spare
+            if (worstRoundTrip.get() < period * (divisor - 1) / 2)
+                rateDivisor = divisor - 1;
+        } else if (overloadedFrames > 0) {
+            calmWindows = 0;
+        }
+
+        windowFrames = 0;
+        overloadedFrames = 0;
+        worstRoundTrip.set(0);
+    }
+
+    private static void resetWindow() {
+        windowFrames = 0;
+        overloadedFrames = 0;
+        calmWindows = 0;
+        worstRoundTrip.set(0);
+    }
+
+    private static void waitUntil(long deadline) {
+        long remaining;
+
+        while ((remaining = deadline - System.nanoTime()) > SPIN_THRESHOLD)
+            LockSupport.parkNanos(FrameClock.class, remaining - SPIN_THRESHOLD);
+
+        while (deadline - System.nanoTime() > 0)
+            Thread.yield();
+    }
+
+    // One wake-up per frame, every animator sees the same timestamp
+    static void pulse(long now) {
+        Batch batch = null;
+        boolean metrics = FrameMetrics.isEnabled();
+
+        if (metrics) {
+            FrameMetrics.frames.incrementAndGet();
+
+            if (hasLastPulse)
+                FrameMetrics.frameIntervals.record(now - lastPulse);
+        }
+
+        lastPulse = now;
+        hasLastPulse = true;
+
+        for (Animator animator : animators) {
+            try {
+                if (animator.frame(now)) {
+                    if (batch == null)
+                        batch = obtainBatch();
+
+                    batch.add(animator);
+                }
+            } catch (RuntimeException e) {
+                // A failing animator must not take down the shared pulse (and every other animation with it)
+                animator.pause();
+                report(e);
+            }
+        }
+
+        if (batch != null) {
+            batch.tracked = adaptive && virtualClock == null;
+            batch.posted = metrics || batch.tracked ? System.nanoTime() : 0;
+
+            if (batch.tracked)
+                pendingBatches.incrementAndGet();
+
+            dispatch(batch);
+        }
+    }
+
+    private static Batch obtainBatch() {
+        Batch batch = batchPool.poll();
+        return batch != null ? batch : new Batch();
+    }
+
+    private static void report(RuntimeException e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    /**
+     * Animators with a new fraction in their mailbox, delivered on the EDT as a single event. Each one takes its latest
+     * fraction when delivered, so a batch that waited behind other events still shows the newest frame, and an animator
+     * is never in more than one pending batch. Batches are recycled once delivered, so dispatch doesn't allocate per
+     * animator nor (after warming up) per frame.
+     */
+    private static final class Batch implements Runnable {
+        private Animator[] targets = new Animator[16];
+        private int size;
+        // When the batch was handed to the EDT, 0 if not measured
+        private long posted;
+        // Whether the batch counts towards the adaptive frame rate
+        private boolean tracked;
+
+        void add(Animator animator) {
+            if (size == targets.length)
+                targets = Arrays.copyOf(targets, size * 2);
+
+            targets[size++] = animator;
+        }
+
+        @Override
+        public void run() {
+            if (posted != 0 && FrameMetrics.isEnabled()) {
+                FrameMetrics.edtLatency.record(System.nanoTime() - posted);
+                FrameMetrics.deliveredUpdates.addAndGet(size);
+            }
+
+            for (int i = 0; i < size; i++) {
+                try {
+                    targets[i].deliver();
+                } catch (RuntimeException e) {
+                    // Same isolation the animators had back when each update was its own event
+                    report(e);
+                }
+            }
+
+            // One repaint per component for everything this frame's updates marked
+            RepaintCoalescer.flush();
+
+            if (tracked) {
+                long roundTrip = System.nanoTime() - posted;
+                worstRoundTrip.accumulateAndGet(roundTrip, Math::max);
+                pendingBatches.decrementAndGet();
+            }
+
+            Arrays.fill(targets, 0, size, null);
+            size = 0;
+            batchPool.offer(this);
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package io.github.z3r0x24.jani;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in instrumentation of the frame pulse shared by every animation. Once {@link #setEnabled(boolean) enabled} it
+ * records:
+ * <ul>
+ *     <li> Frame intervals: time between consecutive frames while something is animating.
+ *     <li> EDT latency: time between a frame's updates being posted and the EDT starting to run them.
+ *     <li> Dropped frames: frames skipped because the pulse fell more than a frame behind.
+ *     <li> Coalesced frames: frames an animator produced while its previous one was still waiting for the EDT.
+ *     <li> Frames and delivered updates, along with the amount of animations running.
+ * </ul>
+ * Everything can be read at once through {@link #snapshot()}, or over JMX after calling {@link #registerMBean()}.
+ * Animators also keep their own tick and coalesced frame counts while metrics are enabled. When disabled (the default)
+ * the only cost is reading a flag once per frame.
+ */
+public final class FrameMetrics {
+    /**
+     * Name the MBean is registered under.
+     */
+    public static final String OBJECT_NAME = "io.github.z3r0x24.jani:type=FrameMetrics";
+
+    // Bucket i holds durations up to 2^i microseconds
+    private static final int BUCKETS = 32;
+
+    private static volatile boolean enabled = false;
+
+    static final Recorder frameIntervals = new Recorder();
+    static final Recorder edtLatency = new Recorder();
+
+    static final AtomicLong frames = new AtomicLong();
+    static final AtomicLong droppedFrames = new AtomicLong();
+    static final AtomicLong coalescedFrames = new AtomicLong();
+    static final AtomicLong deliveredUpdates = new AtomicLong();
+
+    private FrameMetrics() {}
+
+    /**
+     * Enables or disables recording. Counters keep their values while disabled.
+     * @param enabled If true, frames will be measured
+     */
+    public static void setEnabled(boolean enabled) {
+        FrameMetrics.enabled = enabled;
+    }
+
+    /**
+     * @return true if frames are being measured
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Clears every counter and histogram.
+     */
+    public static void reset() {
+        frameIntervals.reset();
+        edtLatency.reset();
+        frames.set(0);
+        droppedFrames.set(0);
+        coalescedFrames.set(0);
+        deliveredUpdates.set(0);
+    }
+
+    /**
+     * Returns the values recorded so far. Values recorded while the snapshot is being taken may or may not be included.
+     * @return Snapshot of every counter and histogram
+     */
+    public static Snapshot snapshot() {
+        return new Snapshot(frames.get(), droppedFrames.get(), coalescedFrames.get(), deliveredUpdates.get(),
+                FrameClock.getActiveCount(), frameIntervals.snapshot(), edtLatency.snapshot());
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server under {@link #OBJECT_NAME}. Does nothing if already registered.
+     * @throws IllegalStateException If the MBean can't be registered
+     */
+    public static void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            server.registerMBean(new Bean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException ignored) {
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't register the frame metrics MBean", e);
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server. Does nothing if they weren't registered.
+     */
+    public static void unregisterMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (InstanceNotFoundException ignored) {
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't unregister the frame metrics MBean", e);
+        }
+    }
+
+    /**
+     * Immutable copy of the metrics at some point in time.
+     */
+    public static final class Snapshot {
+        private final long frames;
+        private final long droppedFrames;
+        private final long coalescedFrames;
+        private final long deliveredUpdates;
+        private final int activeAnimations;
+        private final Histogram frameIntervals;
+        private final Histogram edtLatency;
+
+        private Snapshot(long frames, long droppedFrames, long coalescedFrames, long deliveredUpdates,
+                         int activeAnimations, Histogram frameIntervals, Histogram edtLatency) {
+            this.frames = frames;
+            this.droppedFrames = droppedFrames;
+            this.coalescedFrames = coalescedFrames;
+            this.deliveredUpdates = deliveredUpdates;
+            this.activeAnimations = activeAnimations;
+            this.frameIntervals = frameIntervals;
+            this.edtLatency = edtLatency;
+        }
+
+        /**
+         * @return Amount of frames pulsed
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return Amount of frames skipped because the pulse fell behind
+         */
+        public long getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        /**
+         * @return Amount of frames an animator produced while its previous one was still waiting for the EDT
+         */
+        public long getCoalescedFrames() {
+            return coalescedFrames;
+        }
+
+        /**
+         * @return Amount of updates delivered to animations
+         */
+        public long getDeliveredUpdates() {
+            return deliveredUpdates;
+        }
+
+        /**
+         * @return Amount of animations running when the snapshot was taken
+         */
+        public int getActiveAnimations() {
+            return activeAnimations;
+        }
+
+        /**
+         * @return Time between consecutive frames
+         */
+        public Histogram getFrameIntervals() {
+            return frameIntervals;
+        }
+
+        /**
+         * @return Time between a frame's updates being posted and the EDT running them
+         */
+        public Histogram getEdtLatency() {
+            return edtLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "FrameMetrics{frames=" + frames + ", dropped=" + droppedFrames + ", coalesced=" + coalescedFrames +
+                    ", delivered=" + deliveredUpdates + ", active=" + activeAnimations + ", frameIntervals=" +
+                    frameIntervals + ", edtLatency=" + edtLatency + "}";
+        }
+    }
+
+    /**
+     * Distribution of durations, in buckets whose upper bounds double from 1 microsecond up (the last bucket holds
+     * everything longer). Percentiles are therefore approximate: they return the upper bound of the bucket they fall in.
+     */
+    public static final class Histogram {
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Histogram(long[] buckets, long count, long sum, long max) {
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return Amount of durations recorded
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return Mean duration in nanoseconds, 0 if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @return Longest duration in nanoseconds
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns an upper bound for the given percentile.
+         * @param percentile Percentile, between 0 and 100
+         * @return Duration in nanoseconds, 0 if nothing was recorded
+         */
+        public long getPercentile(double percentile) {
+            if (!(percentile >= 0 && percentile <= 100))
+                throw new IllegalArgumentException("Percentile must be in range (0 <= x <= 100): " + percentile);
+
+            if (count == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+
+                if (seen >= rank)
+                    return Math.min(upperBound(i), max);
+            }
+
+            return max;
+        }
+
+        /**
+         * @return Amount of buckets
+         */
+        public int getBucketCount() {
+            return buckets.length;
+        }
+
+        /**
+         * Returns the amount of durations recorded in a bucket.
+         * @param bucket Bucket index
+         * @return Amount of durations
+         */
+        public long getCountAt(int bucket) {
+            return buckets[bucket];
+        }
+
+        /**
+         * Returns the longest duration that falls in a bucket.
+         * @param bucket Bucket index
+         * @return Upper bound in nanoseconds, {@code Long.MAX_VALUE} for the last bucket
+         */
+        public long getUpperBoundAt(int bucket) {
+            if (bucket < 0 || bucket >= buckets.length)
+                throw new IndexOutOfBoundsException("Index: " + bucket + ", Size: " + buckets.length);
+
+            return upperBound(bucket);
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count + ", mean=" + micros(getMean()) + "us, p99=" + micros(getPercentile(99)) +
+                    "us, max=" + micros(max) + "us}";
+        }
+
+        private static String micros(double nanos) {
+            return String.format("%.1f", nanos / 1000);
+        }
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : TimeUnit.MICROSECONDS.toNanos(1L << bucket);
+    }
+
+    private static int bucketOf(long nanos) {
+        long micros = Math.max(0, nanos - 1) / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    /**
+     * Lock-free histogram, written by the frame thread or the EDT and read from anywhere.
+     */
+    static final class Recorder {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0)
+                return;
+
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            sum.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++)
+                buckets.set(i, 0);
+
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+
+        Histogram snapshot() {
+            long[] copy = new long[BUCKETS];
+            long total = 0;
+
+            for (int i = 0; i < BUCKETS; i++) {
+                copy[i] = buckets.get(i);
+                total += copy[i];
+            }
+
+            // Count from the buckets themselves so percentiles stay consistent with them
+            return new Histogram(copy, total, sum.get(), max.get());
+        }
+    }
+
+    private static final class Bean implements FrameMetricsMXBean {
+        private static double millis(double nanos) {
+            return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return FrameMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            FrameMetrics.setEnabled(enabled);
+        }
+
+        @Override
+        public void reset() {
+            FrameMetrics.reset();
+        }
+
+        @Override
+        public long getFrameCount() {
+            return frames.get();
+        }
+
+        @Override
+        public long getDroppedFrameCount() {
+            return droppedFrames.get();
+        }
+
+        @Override
+        public long getCoalescedFrameCount() {
+            return coalescedFrames.get();
+        }
+
+        @Override
+        public long getDeliveredUpdateCount() {
+            return deliveredUpdates.get();
+        }
+
+        @Override
+        public int getActiveAnimationCount() {
+            return FrameClock.getActiveCount();
+        }
+
+        @Override
+        public double getFrameIntervalMeanMillis() {
+            return millis(frameIntervals.snapshot().getMean());
+        }
+
+        @Override
+        public double getFrameIntervalP99Millis() {
+            return millis(frameIntervals.snapshot().getPercentile(99));
+        }
+
+        @Override
+        public double getFrameIntervalMaxMillis() {
+            return millis(frameIntervals.snapshot().getMax());
+        }
+
+        @Override
+        public double getEdtLatencyMeanMillis() {
+            return millis(edtLatency.snapshot().getMean());
+        }
+
+        @Override
+        public double getEdtLatencyP99Millis() {
+            return millis(edtLatency.snapshot().getPercentile(99));
+        }
+
+        @Override
+        public double getEdtLatencyMaxMillis() {
+            return millis(edtLatency.snapshot().getMax());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.z3r0x24.jani;
+
+/**
+ * JMX view of {@link FrameMetrics}, registered through {@link FrameMetrics#registerMBean()}. Durations are in
+ * milliseconds.
+ */
+public interface FrameMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    void reset();
+
+    long getFrameCount();
+
+    long getDroppedFrameCount();
+
+    long getCoalescedFrameCount();
+
+    long getDeliveredUpdateCount();
+
+    int getActiveAnimationCount();
+
+    double getFrameIntervalMeanMillis();
+
+    double getFrameIntervalP99Millis();
+
+    double getFrameIntervalMaxMillis();
+
+    double getEdtLatencyMeanMillis();
+
+    double getEdtLatencyP99Millis();
+
+    double getEdtLatencyMaxMillis();
+}
@@ -0,0 +1,182 @@
+package io.github.z3r0x24.jani.Keyframes;
+
+/**
+ * An immutable, evaluation-ready version of a {@link Keyframes} object for a given animation duration. Instants are
+ * normalized to fractions of the animation once, and every segment (the stretch between a key frame and the next one)
+ * stores the coefficients needed to turn the animation fraction into the segment's own fraction, along with its start
+ * value and value delta. Evaluating a value is then a segment lookup plus a couple of multiply-adds. <br>
+ * Instances are obtained through {@link Keyframes#compile(float)} and can be shared freely between animations.
+ * <p>
+ * The segment of the last key frame holds its value until the end of the animation. If the last key frame sits at the
+ * very end, fractions going past it (overshooting easing functions such as back or elastic) extrapolate the segment
+ * leading to it instead.
+ */
+public final class CompiledKeyframes {
+    private final Keyframes.Type type;
+    private final float duration;
+    private final int size;
+
+    private final float[] starts;
+    // Segment fraction = fraction * scale + offset
+    private final float[] scales;
+    private final float[] offsets;
+
+    // Start values and deltas to the next key frame, packed as in Keyframes for POINT and DIM
+    private final int[] ints;
+    private final int[] intDeltas;
+    private final double[] doubles;
+    private final double[] doubleDeltas;
+
+    CompiledKeyframes(Keyframes.Type type, float duration, float[] starts, int size, int[] ints, double[] doubles) {
+        this.type = type;
+        this.duration = duration;
+        this.size = size;
+        this.starts = starts;
+        this.scales = new float[size];
+        this.offsets = new float[size];
+
+        for (int i = 0; i + 1 < size; i++) {
+            float length = starts[i + 1] - starts[i];
+
+            // Zero length segments are never located, keep them out of the division anyway
+            if (length > 0) {
+                scales[i] = 1 / length;
+                offsets[i] = -starts[i] / length;
+            }
+        }
+
+        int stride = type == Keyframes.Type.POINT || type == Keyframes.Type.DIM ? 2 : 1;
+
+        if (type == Keyframes.Type.DOUBLE) {
+            this.ints = null;
+            this.intDeltas = null;
+            this.doubles = doubles;
+            this.doubleDeltas = new double[size];
+
+            for (int i = 0; i + 1 < size; i++)
+                doubleDeltas[i] = doubles[i + 1] - doubles[i];
+        } else {
+            this.ints = ints;
+            this.intDeltas = new int[size * stride];
+            this.doubles = null;
+            this.doubleDeltas = null;
+
+            for (int i = 0; i + stride < size * stride; i++)
+                intDeltas[i] = ints[i + stride] - ints[i];
+        }
+    }
+
+    /**
+     * Finds the segment used to evaluate {@code fraction}. Passing the previous result as {@code hint} makes sequential
+     * lookups constant time.
+     * @param fraction Animation fraction
+     * @param hint Segment returned by the previous lookup, or any index if unknown
+     * @return Segment index
+     * @see Keyframes#findSegment(float, int)
+     */
+    public int segment(float fraction, int hint) {
+        int segment = Keyframes.search(starts, size, fraction, hint);
+
+        if (segment == size - 1 && segment > 0 && starts[segment] >= 1)
+            segment--;
+
+        return segment;
+    }
+
+    /**
+     * Converts the animation fraction into the fraction within a segment.
+     * @param segment Segment index, as returned by {@link CompiledKeyframes#segment(float, int)}
+     * @param fraction Animation fraction
+     * @return Fraction within the segment
+     */
+    public float relative(int segment, float fraction) {
+        return fraction * scales[segment] + offsets[segment];
+    }
+
+    /**
+     * Evaluates an {@code INT} timeline.
+     * @param segment Segment index, as returned by {@link CompiledKeyframes#segment(float, int)}
+     * @param fraction Animation fraction
+     * @return Interpolated integer
+     */
+    public int getInt(int segment, float fraction) {
+        check(Keyframes.Type.INT);
+        return Math.round(intDeltas[segment] * relative(segment, fraction)) + ints[segment];
+    }
+
+    /**
+     * Evaluates a {@code DOUBLE} timeline.
+     * @param segment Segment index, as returned by {@link CompiledKeyframes#segment(float, int)}
+     * @param fraction Animation fraction
+     * @return Interpolated double
+     */
+    public double getDouble(int segment, float fraction) {
+        check(Keyframes.Type.DOUBLE);
+        return doubleDeltas[segment] * relative(segment, fraction) + doubles[segment];
+    }
+
+    /**
+     * Evaluates the x coordinate of a {@code POINT} timeline, or the width of a {@code DIM} one.
+     * @param segment Segment index, as returned by {@link CompiledKeyframes#segment(float, int)}
+     * @param fraction Animation fraction
+     * @return Interpolated x coordinate (width)
+     */
+    public int getX(int segment, float fraction) {
+        checkPair();
+        return Math.round(intDeltas[segment * 2] * relative(segment, fraction)) + ints[segment * 2];
+    }
+
+    /**
+     * Evaluates the y coordinate of a {@code POINT} timeline, or the height of a {@code DIM} one.
+     * @param segment Segment index, as returned by {@link CompiledKeyframes#segment(float, int)}
+     * @param fraction Animation fraction
+     * @return Interpolated y coordinate (height)
+     */
+    public int getY(int segment, float fraction) {
+        checkPair();
+        return Math.round(intDeltas[segment * 2 + 1] * relative(segment, fraction)) + ints[segment * 2 + 1];
+    }
+
+    private void check(Keyframes.Type expected) {
+        if (type != expected)
+            throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: " + expected);
+    }
+
+    private void checkPair() {
+        if (type != Keyframes.Type.POINT && type != Keyframes.Type.DIM)
+            throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: Point/Dimension");
+    }
+
+    /**
+     * @return The type of the values in this timeline
+     */
+    public Keyframes.Type getType() {
+        return type;
+    }
+
+    /**
+     * @return Animation duration in seconds this timeline was compiled for
+     */
+    public float getDuration() {
+        return duration;
+    }
+
+    /**
+     * Returns the instant of the key frame specified by {@code kfIndex} as a fraction of the animation.
+     * @param kfIndex index of the key frame
+     * @return Normalized instant
+     */
+    public float getInstantAt(int kfIndex) {
+        if (kfIndex < 0 || kfIndex >= size)
+            throw new IndexOutOfBoundsException("Index: " + kfIndex + ", Size: " + size);
+
+        return starts[kfIndex];
+    }
+
+    /**
+     * @return Amount of key frames in this timeline
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -1,10 +1,36 @@
 package io.github.z3r0x24.jani.Keyframes;
 
 /**
- * This exception is thrown when the provided keyframe string is improperly formatted.
+ * This exception is thrown when the provided keyframe string is improperly formatted. When the error comes from parsing,
+ * its position in the source is available through {@link #getLine()} and {@link #getColumn()}.
  */
 public class KeyframeFormatException extends RuntimeException {
+    private final int line;
+    private final int column;
+
     public KeyframeFormatException(String message) {
         super(message);
+        this.line = -1;
+        this.column = -1;
+    }
+
+    public KeyframeFormatException(String message, int line, int column) {
+        super(message + " (line " + line + ", column " + column + ")");
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @return Line (starting at 1) where the error was found, or -1 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return Column (starting at 1) where the error was found, or -1 if unknown
+     */
+    public int getColumn() {
+        return column;
     }
 }
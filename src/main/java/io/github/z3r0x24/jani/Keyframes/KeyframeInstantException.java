@@ -13,7 +13,32 @@ package io.github.z3r0x24.jani.Keyframes;
  * Try adjusting the animation duration and keyframes instead.
  */
 public class KeyframeInstantException extends RuntimeException {
+    private final int line;
+    private final int column;
+
     public KeyframeInstantException(String message) {
         super(message);
+        this.line = -1;
+        this.column = -1;
+    }
+
+    public KeyframeInstantException(String message, int line, int column) {
+        super(message + " (line " + line + ", column " + column + ")");
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @return Line (starting at 1) where the error was found, or -1 if unknown
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return Column (starting at 1) where the error was found, or -1 if unknown
+     */
+    public int getColumn() {
+        return column;
     }
 }
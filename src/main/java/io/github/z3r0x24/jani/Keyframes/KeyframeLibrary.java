@@ -0,0 +1,188 @@
+package io.github.z3r0x24.jani.Keyframes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A collection of labeled keyframes read from a single text file (or any text source), so many animations can be kept
+ * together instead of inline in the code. Every block follows the format described in {@link Keyframes#parse(String)},
+ * preceded by its label, and line comments ({@code // ...}) are allowed anywhere: <br><br>
+ * {@code // Menu animations} <br>
+ * {@code slideIn { 0%: point(-200, 0); 100%: point(0, 0); }} <br>
+ * {@code fadeOut { 0s: 1.0; 0.3s: 0.0; }} <br><br>
+ * Loading a library only locates the blocks, each one is parsed the first time it's requested through
+ * {@link #get(String)} and the result is cached, so large libraries load fast and only pay for what's used. Format
+ * errors inside a block are therefore reported on first use, with the line and column within the whole source.
+ * <p>
+ * The keyframes returned are immutable and shared between every caller asking for the same label.
+ */
+public final class KeyframeLibrary {
+    private final String source;
+    // Label -> {start, end} offsets of its block (label included) in the source
+    private final Map<String, int[]> blocks;
+    private final ConcurrentHashMap<String, Keyframes> parsed = new ConcurrentHashMap<>();
+
+    private KeyframeLibrary(String source) {
+        this.source = source;
+        this.blocks = Collections.unmodifiableMap(index(source));
+    }
+
+    /**
+     * Creates a library from a string holding labeled keyframe blocks.
+     * @param source Library contents
+     * @return Keyframe library
+     * @throws KeyframeFormatException If the blocks can't be told apart (missing labels or braces, repeated labels)
+     */
+    public static KeyframeLibrary of(String source) {
+        if (source == null)
+            throw new IllegalArgumentException("Source can't be null");
+
+        return new KeyframeLibrary(source);
+    }
+
+    /**
+     * Reads a library from a UTF-8 text file.
+     * @param file Path to the file
+     * @return Keyframe library
+     * @throws IOException If the file can't be read
+     * @throws KeyframeFormatException If the blocks can't be told apart (missing labels or braces, repeated labels)
+     */
+    public static KeyframeLibrary load(Path file) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("File can't be null");
+
+        return new KeyframeLibrary(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a library from a UTF-8 classpath resource, located through the class loader of this library (so the name
+     * is absolute, e.g. {@code "animations/menu.kf"}).
+     * @param name Resource name
+     * @return Keyframe library
+     * @throws IOException If the resource doesn't exist or can't be read
+     * @throws KeyframeFormatException If the blocks can't be told apart (missing labels or braces, repeated labels)
+     */
+    public static KeyframeLibrary loadResource(String name) throws IOException {
+        if (name == null)
+            throw new IllegalArgumentException("Resource name can't be null");
+
+        if (name.startsWith("/"))
+            name = name.substring(1);
+
+        ClassLoader loader = KeyframeLibrary.class.getClassLoader();
+
+        try (InputStream in = loader != null ? loader.getResourceAsStream(name) :
+                ClassLoader.getSystemResourceAsStream(name)) {
+            if (in == null)
+                throw new FileNotFoundException("Resource not found: " + name);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+
+            return new KeyframeLibrary(new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    // Locates every "label { ... }" block without looking at what's inside the braces
+    private static Map<String, int[]> index(String src) {
+        Map<String, int[]> blocks = new LinkedHashMap<>();
+        int end = src.length();
+        int pos = KeyframeParser.skipWhitespace(src, 0, end);
+
+        while (pos < end) {
+            int start = pos;
+
+            if (!KeyframeParser.isNameStart(src.charAt(pos)))
+                throw KeyframeParser.error(src, "Expected a label, got '" + src.charAt(pos) + "'", pos);
+
+            while (pos < end && KeyframeParser.isNameChar(src.charAt(pos)))
+                pos++;
+
+            String label = src.substring(start, pos);
+            pos = KeyframeParser.skipWhitespace(src, pos, end);
+
+            if (pos == end || src.charAt(pos) != '{')
+                throw KeyframeParser.error(src, "Expected '{' after label " + label, pos);
+
+            // Blocks don't nest, the first closing brace outside a comment ends it
+            while (pos < end && src.charAt(pos) != '}') {
+                if (src.startsWith("//", pos))
+                    pos = KeyframeParser.skipWhitespace(src, pos, end);
+                else
+                    pos++;
+            }
+
+            if (pos == end)
+                throw KeyframeParser.error(src, "Unclosed braces in block " + label, start);
+
+            pos++;
+
+            if (blocks.put(label, new int[]{start, pos}) != null)
+                throw KeyframeParser.error(src, "Duplicate label: " + label, start);
+
+            pos = KeyframeParser.skipWhitespace(src, pos, end);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Returns the keyframes stored under {@code label}, parsing its block if this is the first time it's requested.
+     * @param label Block label
+     * @return Immutable keyframes object, the same instance on every call
+     * @throws IllegalArgumentException If there's no block with that label
+     * @throws KeyframeFormatException If the block isn't valid keyframe data
+     */
+    public Keyframes get(String label) {
+        if (label == null)
+            throw new IllegalArgumentException("Label can't be null");
+
+        Keyframes keyframes = parsed.get(label);
+
+        if (keyframes != null)
+            return keyframes;
+
+        int[] block = blocks.get(label);
+
+        if (block == null)
+            throw new IllegalArgumentException("No keyframes labeled " + label);
+
+        return parsed.computeIfAbsent(label, l -> new KeyframeParser(source, block[0], block[1]).parse().freeze());
+    }
+
+    /**
+     * @param label Block label
+     * @return Whether this library has a block with that label
+     */
+    public boolean contains(String label) {
+        return blocks.containsKey(label);
+    }
+
+    /**
+     * @return Labels of every block, in the order they appear in the source
+     */
+    public Set<String> labels() {
+        return blocks.keySet();
+    }
+
+    /**
+     * @return Amount of blocks in this library
+     */
+    public int size() {
+        return blocks.size();
+    }
+}
@@ -0,0 +1,364 @@
+package io.github.z3r0x24.jani.Keyframes;
+
+/**
+ * Single pass parser for the keyframe syntax described in {@link Keyframes#parse(String)}. It reads the source character
+ * by character and writes every key frame straight into the keyframes object, so no regular expressions, substrings nor
+ * boxed values are involved. Error messages carry the line and column where the problem was found. Line comments
+ * ({@code // ...}) are treated as whitespace.
+ */
+final class KeyframeParser {
+    // Exact powers of ten, dividing by these is correctly rounded as long as the mantissa fits in 53 bits
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final CharSequence src;
+    private final int end;
+    private int pos;
+
+    private Keyframes keyframes;
+
+    // Whether the last number read had a decimal point
+    private boolean decimal;
+
+    KeyframeParser(CharSequence src, int start, int end) {
+        this.src = src;
+        this.pos = start;
+        this.end = end;
+    }
+
+    static Keyframes parse(CharSequence src) {
+        return new KeyframeParser(src, 0, src.length()).parse();
+    }
+
+    Keyframes parse() {
+        skipWhitespace();
+
+        // Optional name before the braces (this is also what toString() produces)
+        if (pos < end && isNameStart(src.charAt(pos))) {
+            while (pos < end && isNameChar(src.charAt(pos)))
+                pos++;
+
+            skipWhitespace();
+
+            if (pos == end || src.charAt(pos) != '{')
+                throw error("Expected '{' after name", pos);
+        }
+
+        boolean braces = pos < end && src.charAt(pos) == '{';
+
+        if (braces)
+            pos++;
+
+        parseFrames(braces);
+
+        if (braces) {
+            skipWhitespace();
+
+            if (pos < end)
+                throw error("Unexpected character after closing brace: '" + src.charAt(pos) + "'", pos);
+        }
+
+        if (keyframes == null || keyframes.getInstantAt(0) != 0)
+            throw new KeyframeInstantException("Missing initial instant value (add a value for 0% or 0s).");
+
+        return keyframes;
+    }
+
+    private void parseFrames(boolean braces) {
+        while (true) {
+            skipWhitespace();
+
+            if (pos == end) {
+                if (braces)
+                    throw error("Unclosed braces", pos);
+
+                return;
+            }
+
+            char c = src.charAt(pos);
+
+            if (c == '}') {
+                if (!braces)
+                    throw error("Unopened braces", pos);
+
+                pos++;
+                return;
+            }
+
+            if (c == ';') {
+                pos++;
+                continue;
+            }
+
+            parseFrame();
+            skipWhitespace();
+
+            if (pos < end) {
+                c = src.charAt(pos);
+
+                if (c == ';')
+                    pos++;
+                else if (c != '}')
+                    throw error("Expected ';' after key frame, got '" + c + "'", pos);
+            }
+        }
+    }
+
+    private void parseFrame() {
+        int instantStart = pos;
+
+        // Instants are never negative, a sign would only let "-0%" and "+5%" through
+        if (pos < end && (src.charAt(pos) == '-' || src.charAt(pos) == '+'))
+            throw error("Expected an instant, got '" + src.charAt(pos) + "'", pos);
+
+        double instant = number();
+        Keyframes.Unit unit = null;
+
+        if (pos < end) {
+            char c = src.charAt(pos);
+
+            if (c == '%') {
+                unit = Keyframes.Unit.PERCENT;
+                pos++;
+            } else if (c == 's') {
+                unit = Keyframes.Unit.SECOND;
+                pos++;
+            }
+        }
+
+        Keyframes.Unit expected = keyframes != null ? keyframes.getUnit() : null;
+
+        if (expected == null) {
+            expected = unit != null ? unit : Keyframes.Unit.SECOND;
+        } else if (unit != null && unit != expected) {
+            throw error("Unit mismatch: expected " + name(expected) + ", got " + name(unit) + ": " +
+                    src.subSequence(instantStart, pos), instantStart);
+        }
+
+        float at = (float) instant;
+
+        if (!expected.check(at)) {
+            int[] position = position(instantStart);
+            throw new KeyframeInstantException("Value out of range " + expected.range() + ": " +
+                    src.subSequence(instantStart, pos), position[0], position[1]);
+        }
+
+        skipWhitespace();
+        expect(':');
+        skipWhitespace();
+
+        int valueStart = pos;
+
+        if (pos < end && Character.isLetter(src.charAt(pos))) {
+            Keyframes.Type type;
+
+            if (consume("point"))
+                type = Keyframes.Type.POINT;
+            else if (consume("dim"))
+                type = Keyframes.Type.DIM;
+            else
+                throw error("Invalid value format, expected a number, point(x, y) or dim(width, height)", pos);
+
+            skipWhitespace();
+            expect('(');
+            skipWhitespace();
+            int first = integer();
+            skipWhitespace();
+            expect(',');
+            skipWhitespace();
+            int second = integer();
+            skipWhitespace();
+            expect(')');
+
+            prepare(expected, type, valueStart).insertPair(at, first, second);
+        } else {
+            double value = number();
+
+            if (decimal) {
+                prepare(expected, Keyframes.Type.DOUBLE, valueStart).insertDouble(at, value);
+            } else if (keyframes != null && keyframes.getType() == Keyframes.Type.DOUBLE) {
+                // Integers are fine in a double timeline
+                keyframes.insertDouble(at, value);
+            } else {
+                prepare(expected, Keyframes.Type.INT, valueStart).insertInt(at, toInt(value, valueStart));
+            }
+        }
+    }
+
+    // Creates the keyframes object on the first frame, afterwards checks the value matches its type
+    private Keyframes prepare(Keyframes.Unit unit, Keyframes.Type type, int valueStart) {
+        if (keyframes == null) {
+            keyframes = new Keyframes(type, unit);
+        } else if (keyframes.getType() != type) {
+            throw error("Value type mismatch: expected " + keyframes.getType() + ", got " + type + ": " +
+                    src.subSequence(valueStart, pos), valueStart);
+        }
+
+        return keyframes;
+    }
+
+    private double number() {
+        int start = pos;
+        boolean negative = false;
+
+        if (pos < end && (src.charAt(pos) == '-' || src.charAt(pos) == '+')) {
+            negative = src.charAt(pos) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean exact = true;
+
+        decimal = false;
+
+        while (pos < end) {
+            char c = src.charAt(pos);
+
+            if (c >= '0' && c <= '9') {
+                if (mantissa < MAX_EXACT_MANTISSA / 10)
+                    mantissa = mantissa * 10 + (c - '0');
+                else
+                    exact = false;
+
+                if (decimal)
+                    scale++;
+
+                digits++;
+            } else if (c == '.' && !decimal) {
+                decimal = true;
+            } else {
+                break;
+            }
+
+            pos++;
+        }
+
+        if (digits == 0)
+            throw error("Expected a number", start);
+
+        double value;
+
+        if (exact && scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[scale];
+        } else {
+            // Too many digits for the fast path, let the JDK deal with the rounding
+            value = Math.abs(Double.parseDouble(src.subSequence(start, pos).toString()));
+        }
+
+        return negative ? -value : value;
+    }
+
+    private int integer() {
+        int start = pos;
+        double value = number();
+
+        if (decimal)
+            throw error("Expected an integer: " + src.subSequence(start, pos), start);
+
+        return toInt(value, start);
+    }
+
+    private int toInt(double value, int start) {
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw error("Integer out of range: " + src.subSequence(start, pos), start);
+
+        return (int) value;
+    }
+
+    private boolean consume(String word) {
+        int length = word.length();
+
+        if (end - pos < length)
+            return false;
+
+        for (int i = 0; i < length; i++) {
+            if (src.charAt(pos + i) != word.charAt(i))
+                return false;
+        }
+
+        if (pos + length < end && isNameChar(src.charAt(pos + length)))
+            return false;
+
+        pos += length;
+        return true;
+    }
+
+    private void expect(char c) {
+        if (pos == end)
+            throw error("Expected '" + c + "', got end of input", pos);
+
+        if (src.charAt(pos) != c)
+            throw error("Expected '" + c + "', got '" + src.charAt(pos) + "'", pos);
+
+        pos++;
+    }
+
+    // Skips whitespace and line comments (// ...)
+    private void skipWhitespace() {
+        pos = skipWhitespace(src, pos, end);
+    }
+
+    static int skipWhitespace(CharSequence src, int pos, int end) {
+        while (pos < end) {
+            char c = src.charAt(pos);
+
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '/' && pos + 1 < end && src.charAt(pos + 1) == '/') {
+                while (pos < end && src.charAt(pos) != '\n')
+                    pos++;
+            } else {
+                break;
+            }
+        }
+
+        return pos;
+    }
+
+    static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private static String name(Keyframes.Unit unit) {
+        return unit == Keyframes.Unit.PERCENT ? "percent" : "seconds";
+    }
+
+    private KeyframeFormatException error(String message, int offset) {
+        return error(src, message, offset);
+    }
+
+    static KeyframeFormatException error(CharSequence src, String message, int offset) {
+        int[] position = position(src, offset);
+        return new KeyframeFormatException(message, position[0], position[1]);
+    }
+
+    private int[] position(int offset) {
+        return position(src, offset);
+    }
+
+    // Line and column of an offset, only computed when something goes wrong
+    static int[] position(CharSequence src, int offset) {
+        int line = 1;
+        int column = 1;
+
+        for (int i = 0; i < offset; i++) {
+            if (src.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+
+        return new int[]{line, column};
+    }
+}
@@ -1,12 +1,20 @@
 package io.github.z3r0x24.jani.Keyframes;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * This class details the keyframes of an animation. Essentially each keyframe consists of a pair containing an instant
  * and a value for said instant. The instant determines when that value should occur during the interpolation.
+ * <p>
+ * Keyframes are stored in parallel primitive arrays sorted by instant: one for the instants and one for the values,
+ * whose layout depends on the {@link Type} (points and dimensions are packed as consecutive x/y or width/height pairs),
+ * so reading a value never unboxes nor allocates.
+ * <p>
+ * Keyframes can be made immutable with {@link #toImmutable()}, immutable instances are safe to share between any number
+ * of animations and threads. {@link #parseShared(String)} returns such instances from a bounded cache, so the same
+ * keyframe string is parsed once and every user of it shares one copy.
  */
 public class Keyframes {
 
@@ -20,14 +28,14 @@ public class Keyframes {
     public enum Unit {
         PERCENT, SECOND;
 
-        private boolean check(float v) {
+        boolean check(float v) {
             if (this.equals(PERCENT))
                 return v >= 0 && v <= 100;
 
             return v >= 0;
         }
 
-        private String range() {
+        String range() {
             if (this.equals(PERCENT))
                 return "(0 <= x <= 100)";
 
@@ -77,26 +85,33 @@ public class Keyframes {
             return null;
         }
 
-        private String stringify(Object value) {
-            switch (this) {
-                case POINT:
-                    Point p = (Point) value;
-                    return "point(" + p.x + ", " + p.y + ")";
-
-                case DIM:
-                    Dimension dim = (Dimension) value;
-                    return "dim(" + dim.width + ", " + dim.height + ")";
-
-                default:
-                    return value.toString();
-            }
+        // Values per keyframe in the int array
+        int stride() {
+            return this == POINT || this == DIM ? 2 : 1;
         }
     }
 
-    private final ArrayList<KFrame> frames = new ArrayList<>();
+    private static final int INITIAL_CAPACITY = 8;
+    // Durations kept compiled at once for SECOND units, the oldest one is dropped past this
+    private static final int MAX_COMPILED = 8;
+    private static final CompiledKeyframes[] NONE = new CompiledKeyframes[0];
+
+    private float[] instants = new float[INITIAL_CAPACITY];
+    // INT values, or packed x/y (width/height) pairs for POINT (DIM)
+    private int[] ints;
+    // DOUBLE values
+    private double[] doubles;
+    private int size;
+
     private Type type = null;
     private Unit unit = null;
 
+    // Compiled timelines, one per duration for SECOND units (a single one for PERCENT), dropped whenever a key frame is
+    // added. Replaced as a whole rather than modified, so readers never need to lock.
+    private volatile CompiledKeyframes[] compiled = NONE;
+
+    private boolean immutable;
+
     /**
      * Creates a keyframes object with the specified value type and instant unit. These are defined in the {@link Type}
      * and {@link Unit} enums, respectively. Parsing a string with the keyframes info may be preferred.
@@ -111,54 +126,190 @@ public class Keyframes {
         this.unit = unit;
     }
 
-    // For parsing purposes
-    private Keyframes(){}
+    // Wraps already sorted and validated arrays, used when reading the binary format
+    Keyframes(Type type, Unit unit, float[] instants, int[] ints, double[] doubles) {
+        this(type, unit);
+        this.instants = instants;
+        this.ints = ints;
+        this.doubles = doubles;
+        this.size = instants.length;
+    }
 
     /**
      * Adds a keyframe. Keyframes will be auto-sorted in ascending order based on instant.
      * @param instant Keyframe instant
      * @param value Keyframe value
+     * @throws UnsupportedOperationException If this instance is immutable
      */
     public void addKeyframe(float instant, Object value) {
+        if (immutable)
+            throw new UnsupportedOperationException("Immutable keyframes can't be modified");
+
         if (!type.check(value))
             throw new KeyframeFormatException("Type mismatch: All keyframes must have a value of type " + type);
 
         if (!unit.check(instant))
             throw new KeyframeInstantException("Instant value out of range " + unit.range() + ": " + instant);
 
-        frames.add(new KFrame(instant, value));
-        Collections.sort(frames);
+        insert(instant, value);
+    }
+
+    private void insert(float instant, Object value) {
+        switch (type) {
+            case INT:
+                insertInt(instant, (Integer) value);
+                break;
+            case DOUBLE:
+                insertDouble(instant, (Double) value);
+                break;
+            case POINT:
+                Point p = (Point) value;
+                insertPair(instant, p.x, p.y);
+                break;
+            case DIM:
+                Dimension dim = (Dimension) value;
+                insertPair(instant, dim.width, dim.height);
+                break;
+        }
+    }
+
+    void insertInt(float instant, int value) {
+        int index = makeRoom(instant);
+        ints[index] = value;
+    }
+
+    void insertDouble(float instant, double value) {
+        int index = makeRoom(instant);
+        doubles[index] = value;
     }
 
-    // This is for the parsing method.
-    private void addKeyframe0(String instant, String value) {
-        float atValue;
-        Object parsedValue;
+    void insertPair(float instant, int first, int second) {
+        int index = makeRoom(instant) * 2;
 
-        // Infer type and units
-        if (type == null || unit == null) {
-            unit = ParseUtil.parseUnit(instant);
-            type = ParseUtil.parseType(value);
+        ints[index] = first;
+        ints[index + 1] = second;
+    }
+
+    // Opens a slot keeping the arrays sorted by instant and returns its index. Keyframes with the same instant keep
+    // their insertion order, and the usual case (instants added in ascending order) is a plain append.
+    private int makeRoom(float instant) {
+        if (immutable)
+            throw new UnsupportedOperationException("Immutable keyframes can't be modified");
+
+        int index = size;
+
+        while (index > 0 && instants[index - 1] > instant)
+            index--;
+
+        ensureCapacity(size + 1);
+        compiled = NONE;
+
+        int stride = type.stride();
+
+        System.arraycopy(instants, index, instants, index + 1, size - index);
+
+        if (type == Type.DOUBLE) {
+            System.arraycopy(doubles, index, doubles, index + 1, size - index);
+        } else {
+            System.arraycopy(ints, index * stride, ints, (index + 1) * stride, (size - index) * stride);
         }
 
-        atValue = ParseUtil.parseUnitValue(instant, unit);
+        instants[index] = instant;
+        size++;
 
-        // Unit check so units won't be mismatched
-        if (!unit.check(atValue))
-            throw new KeyframeInstantException("Value out of range " + unit.range() + ": " + instant);
+        return index;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (type == Type.DOUBLE) {
+            if (doubles == null)
+                doubles = new double[instants.length];
+        } else if (ints == null) {
+            ints = new int[instants.length * type.stride()];
+        }
 
-        parsedValue = ParseUtil.parseValue(value);
+        if (capacity <= instants.length)
+            return;
 
-        if (parsedValue instanceof Integer && type.equals(Type.DOUBLE))
-            parsedValue = (((Integer) parsedValue).doubleValue());
+        int newCapacity = Math.max(capacity, instants.length * 2);
 
-        // Type check so types won't be mismatched
-        if (!type.check(parsedValue)) {
-            throw new KeyframeFormatException("Value type mismatch: expected " + type + ", got " +
-                    parsedValue.getClass().getSimpleName() + ": " + value);
+        instants = Arrays.copyOf(instants, newCapacity);
+
+        if (type == Type.DOUBLE)
+            doubles = Arrays.copyOf(doubles, newCapacity);
+        else
+            ints = Arrays.copyOf(ints, newCapacity * type.stride());
+    }
+
+    /**
+     * Returns an immutable version of these key frames: this same instance if it's already immutable, otherwise a copy.
+     * Immutable instances throw on {@link #addKeyframe(float, Object)} and can be shared freely.
+     * @return Immutable keyframes with the same contents
+     */
+    public Keyframes toImmutable() {
+        if (immutable)
+            return this;
+
+        Keyframes copy = new Keyframes(type, unit);
+
+        copy.instants = Arrays.copyOf(instants, size);
+        copy.ints = ints == null ? null : Arrays.copyOf(ints, size * type.stride());
+        copy.doubles = doubles == null ? null : Arrays.copyOf(doubles, size);
+        copy.size = size;
+        copy.immutable = true;
+
+        return copy;
+    }
+
+    // Makes a freshly built instance nobody else has seen yet immutable, trimming the spare capacity
+    Keyframes freeze() {
+        if (!immutable) {
+            instants = Arrays.copyOf(instants, size);
+
+            if (ints != null)
+                ints = Arrays.copyOf(ints, size * type.stride());
+
+            if (doubles != null)
+                doubles = Arrays.copyOf(doubles, size);
+
+            immutable = true;
+        }
+
+        return this;
+    }
+
+    /**
+     * @return Whether these key frames can't be modified
+     * @see Keyframes#toImmutable()
+     */
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    // Bulk writes the key frame count followed by the instants and values, as read back by KeyframesIO
+    void writeFrames(ByteBuffer buffer) {
+        buffer.putInt(size);
+
+        if (size == 0)
+            return;
+
+        buffer.asFloatBuffer().put(instants, 0, size);
+        buffer.position(buffer.position() + size * Float.BYTES);
+
+        if (type == Type.DOUBLE) {
+            buffer.asDoubleBuffer().put(doubles, 0, size);
+            buffer.position(buffer.position() + size * Double.BYTES);
+        } else {
+            int count = size * type.stride();
+
+            buffer.asIntBuffer().put(ints, 0, count);
+            buffer.position(buffer.position() + count * Integer.BYTES);
         }
+    }
 
-        frames.add(new KFrame(atValue, parsedValue));
+    private void checkIndex(int kfIndex) {
+        if (kfIndex < 0 || kfIndex >= size)
+            throw new IndexOutOfBoundsException("Index: " + kfIndex + ", Size: " + size);
     }
 
     /**
@@ -167,7 +318,9 @@ public class Keyframes {
      * where instant is a double value, unit is a character (% for percentage, s for seconds), and value is any of
      * these: int (e.g: 5), double (e.g: 2.17), Point (e.g: point(120, 170)) or Dimension (e.g: dim(600, 400)).
      * The instant unit is required on the first one, optional for the rest (same units will be assigned as they can't
-     * be mismatched). Initial instant is also required (either 0% or 0s). <br>
+     * be mismatched). Initial instant is also required (either 0% or 0s). Whitespace and line breaks are allowed anywhere
+     * between tokens, and the braces may be preceded by a name. Errors report the line and column they were found at.
+     * <br>
      * Full string example:<br>
      * {<br>
      *     0%: point(100, 50); <br>
@@ -183,52 +336,44 @@ public class Keyframes {
             throw new IllegalArgumentException("String cannot be null or blank");
         }
 
-        String temp = kFrames.replaceAll("\n+", "");
-        int start, end;
-
-        start = temp.indexOf('{');
-        end = temp.indexOf('}');
-
-        if (start != -1) {
-            if (end == -1)
-                throw new KeyframeFormatException("Unclosed braces");
-
-            temp = temp.substring(start + 1, end);
-        } else {
-            if (end != -1)
-                throw new KeyframeFormatException("Unopened braces");
-        }
-
-        String[] frames = temp.split("\\s*;\\s*");
-        Keyframes keyframes = new Keyframes();
-
-        for (String frame: frames) {
-            if (frame.trim().isEmpty())
-                continue;
-
-            String[] values = frame.split("\\s*:\\s*");
-
-            if (values.length != 2)
-                throw new KeyframeFormatException("Invalid format: " + frame);
-
-            keyframes.addKeyframe0(values[0], values[1]);
-        }
-
-        Collections.sort(keyframes.frames);
-
-        if (keyframes.frames.get(0).instant != 0)
-            throw new KeyframeInstantException("Missing initial instant value (add a value for 0% or 0s).");
+        return KeyframeParser.parse(kFrames);
+    }
 
-        return keyframes;
+    /**
+     * Parses a string the same way {@link #parse(String)} does, going through the shared {@link KeyframesCache}: strings
+     * that only differ in whitespace or comments are parsed once, and every caller gets the same immutable instance.
+     * Meant for keyframes created over and over (per list cell, per dialog...).
+     * @param kFrames String to be parsed
+     * @return Immutable, shared keyframes object
+     * @see KeyframesCache#shared()
+     */
+    public static Keyframes parseShared(String kFrames) {
+        return KeyframesCache.shared().parse(kFrames);
     }
 
     @Override
     public String toString() {
         StringBuilder frameString = new StringBuilder();
 
-        for (KFrame frame: frames) {
-            frameString.append("\t").append(unit.stringify(frame.instant)).append(": ");
-            frameString.append(type.stringify(frame.value)).append(";\n");
+        for (int i = 0; i < size; i++) {
+            frameString.append("\t").append(unit.stringify(instants[i])).append(": ");
+
+            switch (type) {
+                case INT:
+                    frameString.append(ints[i]);
+                    break;
+                case DOUBLE:
+                    frameString.append(doubles[i]);
+                    break;
+                case POINT:
+                    frameString.append("point(").append(ints[i * 2]).append(", ").append(ints[i * 2 + 1]).append(")");
+                    break;
+                case DIM:
+                    frameString.append("dim(").append(ints[i * 2]).append(", ").append(ints[i * 2 + 1]).append(")");
+                    break;
+            }
+
+            frameString.append(";\n");
         }
 
         return "Keyframes{\n" +
@@ -236,21 +381,6 @@ public class Keyframes {
                 "}";
     }
 
-    private static class KFrame implements Comparable<KFrame> {
-        float instant;
-        Object value;
-
-        KFrame(float instant, Object value) {
-            this.instant = instant;
-            this.value = value;
-        }
-
-        @Override
-        public int compareTo(KFrame o) {
-            return Float.compare(instant, o.instant);
-        }
-    }
-
     /**
      * @return The type admitted by this instance
      * @see Keyframes.Type
@@ -275,10 +405,11 @@ public class Keyframes {
      * @see Keyframes.Type
      */
     public int getIntAt(int kfIndex) {
-        if (!type.equals(Type.INT))
+        if (type != Type.INT)
             throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: int");
 
-        return (int) frames.get(kfIndex).value;
+        checkIndex(kfIndex);
+        return ints[kfIndex];
     }
 
     /**
@@ -289,38 +420,96 @@ public class Keyframes {
      * @see Keyframes.Type
      */
     public double getDoubleAt(int kfIndex) {
-        if (!type.equals(Type.DOUBLE))
+        if (type != Type.DOUBLE)
             throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: double");
 
-        return (double) frames.get(kfIndex).value;
+        checkIndex(kfIndex);
+        return doubles[kfIndex];
     }
 
     /**
      * Returns the Point value at the key frame specified by {@code kfIndex}. Calling this method on an instance with a
-     * type different from {@code Keyframes.Type.POINT} will result in an exception.
+     * type different from {@code Keyframes.Type.POINT} will result in an exception. A new Point is created on every
+     * call, use {@link Keyframes#getXAt(int)} and {@link Keyframes#getYAt(int)} to read the coordinates directly.
      * @param kfIndex index of the key frame holding the value
      * @return Point value
      * @see Keyframes.Type
      */
     public Point getPointAt(int kfIndex) {
-        if (!type.equals(Type.POINT))
+        return new Point(getXAt(kfIndex), getYAt(kfIndex));
+    }
+
+    /**
+     * Returns the x coordinate of the Point value at the key frame specified by {@code kfIndex}. Calling this method on
+     * an instance with a type different from {@code Keyframes.Type.POINT} will result in an exception.
+     * @param kfIndex index of the key frame holding the value
+     * @return x coordinate
+     * @see Keyframes.Type
+     */
+    public int getXAt(int kfIndex) {
+        if (type != Type.POINT)
+            throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: Point");
+
+        checkIndex(kfIndex);
+        return ints[kfIndex * 2];
+    }
+
+    /**
+     * Returns the y coordinate of the Point value at the key frame specified by {@code kfIndex}. Calling this method on
+     * an instance with a type different from {@code Keyframes.Type.POINT} will result in an exception.
+     * @param kfIndex index of the key frame holding the value
+     * @return y coordinate
+     * @see Keyframes.Type
+     */
+    public int getYAt(int kfIndex) {
+        if (type != Type.POINT)
             throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: Point");
 
-        return (Point) frames.get(kfIndex).value;
+        checkIndex(kfIndex);
+        return ints[kfIndex * 2 + 1];
     }
 
     /**
      * Returns the Dimension value at the key frame specified by {@code kfIndex}. Calling this method on an instance
-     * with a type different from {@code Keyframes.Type.DIM} will result in an exception.
+     * with a type different from {@code Keyframes.Type.DIM} will result in an exception. A new Dimension is created on
+     * every call, use {@link Keyframes#getWidthAt(int)} and {@link Keyframes#getHeightAt(int)} to read the values
+     * directly.
      * @param kfIndex index of the key frame holding the value
      * @return Dimension value
      * @see Keyframes.Type
      */
     public Dimension getDimAt(int kfIndex) {
-        if (!type.equals(Type.DIM))
+        return new Dimension(getWidthAt(kfIndex), getHeightAt(kfIndex));
+    }
+
+    /**
+     * Returns the width of the Dimension value at the key frame specified by {@code kfIndex}. Calling this method on an
+     * instance with a type different from {@code Keyframes.Type.DIM} will result in an exception.
+     * @param kfIndex index of the key frame holding the value
+     * @return width
+     * @see Keyframes.Type
+     */
+    public int getWidthAt(int kfIndex) {
+        if (type != Type.DIM)
             throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: Dimension");
 
-        return (Dimension) frames.get(kfIndex).value;
+        checkIndex(kfIndex);
+        return ints[kfIndex * 2];
+    }
+
+    /**
+     * Returns the height of the Dimension value at the key frame specified by {@code kfIndex}. Calling this method on
+     * an instance with a type different from {@code Keyframes.Type.DIM} will result in an exception.
+     * @param kfIndex index of the key frame holding the value
+     * @return height
+     * @see Keyframes.Type
+     */
+    public int getHeightAt(int kfIndex) {
+        if (type != Type.DIM)
+            throw new IllegalStateException("Incorrect solicited type (Type: " + type + ", solicited: Dimension");
+
+        checkIndex(kfIndex);
+        return ints[kfIndex * 2 + 1];
     }
 
     /**
@@ -329,16 +518,114 @@ public class Keyframes {
      * @return float value representing the instant
      */
     public float getInstantAt(int kfIndex) {
-        if (unit.equals(Unit.SECOND))
-            return frames.get(kfIndex).instant;
+        checkIndex(kfIndex);
+
+        if (unit == Unit.SECOND)
+            return instants[kfIndex];
         else
-            return frames.get(kfIndex).instant / 100;
+            return instants[kfIndex] / 100;
+    }
+
+    /**
+     * Compiles these key frames into an immutable timeline for an animation lasting {@code durationSeconds}. Instants
+     * are normalized to fractions of the animation and the per-segment coefficients are precomputed, so evaluating a
+     * value on every frame takes no divisions nor type/unit checks. <br>
+     * The result is cached: compiling again with the same duration (any duration for percentage units) returns the same
+     * instance until a new key frame is added, so every animation using these key frames shares one timeline. Timelines
+     * for the last few durations are kept, so animations of different durations sharing second-based key frames don't
+     * recompile on every frame.
+     * @param durationSeconds Duration of the animation in seconds
+     * @return Compiled timeline
+     * @throws IllegalArgumentException if the unit is seconds and {@code durationSeconds} is less than or equal to 0
+     */
+    public CompiledKeyframes compile(float durationSeconds) {
+        CompiledKeyframes[] cached = compiled;
+
+        for (CompiledKeyframes timeline : cached) {
+            if (unit == Unit.PERCENT || timeline.getDuration() == durationSeconds)
+                return timeline;
+        }
+
+        if (size == 0)
+            throw new IllegalStateException("No key frames to compile");
+
+        if (unit == Unit.SECOND && !(durationSeconds > 0))
+            throw new IllegalArgumentException("Duration must be greater than 0: " + durationSeconds);
+
+        float divisor = unit == Unit.SECOND ? durationSeconds : 100;
+        float[] starts = new float[size];
+
+        for (int i = 0; i < size; i++)
+            starts[i] = instants[i] / divisor;
+
+        CompiledKeyframes timeline = new CompiledKeyframes(type, durationSeconds, starts, size,
+                ints == null ? null : Arrays.copyOf(ints, size * type.stride()),
+                doubles == null ? null : Arrays.copyOf(doubles, size));
+
+        // Newest first. Two threads compiling at once may drop each other's timeline, it just gets compiled again
+        int kept = Math.min(cached.length, MAX_COMPILED - 1);
+        CompiledKeyframes[] updated = new CompiledKeyframes[kept + 1];
+        updated[0] = timeline;
+        System.arraycopy(cached, 0, updated, 1, kept);
+
+        compiled = updated;
+
+        return timeline;
+    }
+
+    /**
+     * Finds the key frame starting the segment that contains {@code instant}, that is, the last key frame whose instant
+     * is less than or equal to it (or the first one if {@code instant} comes before all of them). Instants are expressed
+     * the same way {@link Keyframes#getInstantAt(int)} returns them. <br>
+     * Passing the index returned by the previous lookup as {@code hint} makes sequential lookups (playing forward or
+     * backward) constant time; any other jump is resolved with a binary search.
+     * @param instant Instant to look up
+     * @param hint Index returned by the previous lookup, or any index if unknown
+     * @return Index of the key frame starting the segment
+     */
+    public int findSegment(float instant, int hint) {
+        if (size == 0)
+            throw new IllegalStateException("No key frames to look up");
+
+        return search(instants, size, unit == Unit.SECOND ? instant : instant * 100, hint);
+    }
+
+    // Last index i in [0, n) such that a[i] <= t (0 if t < a[0]). Checks the hinted segment and its neighbours first.
+    static int search(float[] a, int n, float t, int hint) {
+        if (hint >= 0 && hint < n) {
+            if (a[hint] <= t) {
+                if (hint + 1 == n || t < a[hint + 1])
+                    return hint;
+
+                if (hint + 2 == n || t < a[hint + 2])
+                    return hint + 1;
+            } else if (hint > 0 && a[hint - 1] <= t) {
+                return hint - 1;
+            }
+        }
+
+        if (t < a[0])
+            return 0;
+
+        int low = 0;
+        int high = n - 1;
+
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+
+            if (a[mid] <= t)
+                low = mid;
+            else
+                high = mid - 1;
+        }
+
+        return low;
     }
 
     /**
      * @return Amount of key frames within this instance
      */
     public int size() {
-        return frames.size();
+        return size;
     }
 }
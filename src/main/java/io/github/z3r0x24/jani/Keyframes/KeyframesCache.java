@@ -0,0 +1,180 @@
+package io.github.z3r0x24.jani.Keyframes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of parsed keyframes, keyed by their source string. Strings are normalized before the lookup (comments
+ * and whitespace that doesn't separate two tokens are dropped), so the same keyframes written with different formatting
+ * share an entry. Cached keyframes are immutable and the same instance is handed to every caller, so repeated
+ * construction costs a hash lookup and identical timelines share one copy in memory.
+ * <p>
+ * When full, the least recently used entry is evicted; the capacity counts distinct (normalized) keyframes. Source
+ * strings are also remembered as written, in a separate table of the same capacity, so looking up the exact same string
+ * again skips normalization. Strings that fail to parse are not cached.
+ */
+public final class KeyframesCache {
+    /**
+     * Capacity of the shared cache used by {@link Keyframes#parseShared(String)}.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final KeyframesCache shared = new KeyframesCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final LinkedHashMap<String, Keyframes> entries;
+    // Source strings as written, mapped to their normalized key. Only an alias: it resolves while the entry is cached
+    private final LinkedHashMap<String, String> aliases;
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a cache holding up to {@code capacity} keyframes.
+     * @param capacity Maximum amount of distinct keyframes
+     */
+    public KeyframesCache(int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity can't be less than 1");
+
+        this.capacity = capacity;
+        this.entries = lru(capacity);
+        this.aliases = lru(capacity);
+    }
+
+    // Access order, so iteration starts with the least recently used entry
+    private static <V> LinkedHashMap<String, V> lru(int capacity) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @return The cache used by {@link Keyframes#parseShared(String)}
+     */
+    public static KeyframesCache shared() {
+        return shared;
+    }
+
+    /**
+     * Returns the cached keyframes for {@code kFrames}, parsing and caching them if they're not there yet.
+     * @param kFrames String to be parsed, in the format described in {@link Keyframes#parse(String)}
+     * @return Immutable keyframes object
+     */
+    public Keyframes parse(String kFrames) {
+        if (kFrames == null || kFrames.trim().isEmpty())
+            throw new IllegalArgumentException("String cannot be null or blank");
+
+        synchronized (this) {
+            // Most callers pass the exact same string every time, so that's checked before paying for normalization
+            String alias = aliases.get(kFrames);
+            Keyframes keyframes = alias != null ? entries.get(alias) : null;
+
+            if (keyframes != null) {
+                hits++;
+                return keyframes;
+            }
+        }
+
+        String key = normalize(kFrames);
+
+        synchronized (this) {
+            Keyframes keyframes = entries.get(key);
+
+            if (keyframes != null) {
+                hits++;
+                aliases.put(kFrames, key);
+                return keyframes;
+            }
+
+            misses++;
+        }
+
+        // Parsed outside the lock, two threads missing the same key at once just parse it twice. The original string is
+        // the one parsed so errors point at the right line and column.
+        Keyframes keyframes = KeyframeParser.parse(kFrames).freeze();
+
+        synchronized (this) {
+            Keyframes existing = entries.putIfAbsent(key, keyframes);
+
+            if (existing != null)
+                keyframes = existing;
+
+            aliases.put(kFrames, key);
+
+            return keyframes;
+        }
+    }
+
+    // Drops comments and whitespace, except a single space where it separates two tokens that would otherwise merge
+    static String normalize(String src) {
+        int end = src.length();
+        StringBuilder key = new StringBuilder(end);
+        int pos = 0;
+
+        while (pos < end) {
+            int next = KeyframeParser.skipWhitespace(src, pos, end);
+
+            if (next > pos) {
+                if (key.length() > 0 && next < end && isTokenChar(key.charAt(key.length() - 1)) &&
+                        isTokenChar(src.charAt(next)))
+                    key.append(' ');
+
+                pos = next;
+                continue;
+            }
+
+            key.append(src.charAt(pos++));
+        }
+
+        return key.toString();
+    }
+
+    private static boolean isTokenChar(char c) {
+        switch (c) {
+            case '{': case '}': case ':': case ';': case '(': case ')': case ',':
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes every entry. Hit and miss counters are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        aliases.clear();
+    }
+
+    /**
+     * @return Amount of lookups answered from the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Amount of lookups that had to parse the string
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return Amount of distinct keyframes currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Maximum amount of distinct keyframes
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.z3r0x24.jani.Keyframes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes {@link Keyframes} in a compact binary format, meant for large timelines (recorded gestures and such)
+ * where parsing text on startup would be too slow. Reading is a header check followed by a bulk copy of the primitive
+ * arrays, no parsing nor per key frame objects involved.
+ * <p>
+ * Layout (big endian): <br>
+ * {@code int} magic ({@code "JAKF"}), {@code byte} version, {@code byte} type, {@code byte} unit, {@code byte} reserved,
+ * {@code int} key frame count, {@code float[count]} instants, then the values: {@code double[count]} for DOUBLE,
+ * {@code int[count]} for INT, or {@code int[count * 2]} x/y (width/height) pairs for POINT (DIM). Type and unit are
+ * stored as the ordinals of {@link Keyframes.Type} and {@link Keyframes.Unit}.
+ */
+public final class KeyframesIO {
+    /**
+     * Leading bytes of every file, "JAKF" in ASCII.
+     */
+    public static final int MAGIC = 0x4A414B46;
+    /**
+     * Version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 12;
+
+    private KeyframesIO() {}
+
+    /**
+     * Returns the amount of bytes {@code keyframes} take in the binary format.
+     * @param keyframes Keyframes to measure
+     * @return Size in bytes
+     */
+    public static int byteSize(Keyframes keyframes) {
+        int size = keyframes.size();
+        int valueBytes = keyframes.getType() == Keyframes.Type.DOUBLE ? size * Double.BYTES :
+                size * keyframes.getType().stride() * Integer.BYTES;
+
+        return HEADER_BYTES + size * Float.BYTES + valueBytes;
+    }
+
+    /**
+     * Writes {@code keyframes} at the buffer's current position, advancing it. The buffer's byte order is left as it
+     * was.
+     * @param keyframes Keyframes to write
+     * @param buffer Destination buffer, needs {@link #byteSize(Keyframes)} bytes remaining
+     * @throws BufferOverflowException If there isn't enough room left in the buffer
+     */
+    public static void write(Keyframes keyframes, ByteBuffer buffer) {
+        if (keyframes == null || buffer == null)
+            throw new IllegalArgumentException("Keyframes and buffer can't be null");
+
+        if (buffer.remaining() < byteSize(keyframes))
+            throw new BufferOverflowException();
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        try {
+            buffer.putInt(MAGIC);
+            buffer.put((byte) VERSION);
+            buffer.put((byte) keyframes.getType().ordinal());
+            buffer.put((byte) keyframes.getUnit().ordinal());
+            buffer.put((byte) 0);
+            keyframes.writeFrames(buffer);
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    /**
+     * Reads keyframes from the buffer's current position, advancing it past them. The buffer's byte order is left as
+     * it was.
+     * @param buffer Source buffer
+     * @return Keyframes object
+     * @throws KeyframeFormatException If the data isn't in this format, is truncated or holds invalid key frames
+     */
+    public static Keyframes read(ByteBuffer buffer) {
+        if (buffer == null)
+            throw new IllegalArgumentException("Buffer can't be null");
+
+        ByteOrder order = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        try {
+            return read0(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new KeyframeFormatException("Truncated keyframe data");
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    private static Keyframes read0(ByteBuffer buffer) {
+        if (buffer.getInt() != MAGIC)
+            throw new KeyframeFormatException("Not keyframe data (wrong magic number)");
+
+        int version = buffer.get();
+
+        if (version != VERSION)
+            throw new KeyframeFormatException("Unsupported format version: " + version);
+
+        Keyframes.Type type = enumAt(Keyframes.Type.values(), buffer.get(), "type");
+        Keyframes.Unit unit = enumAt(Keyframes.Unit.values(), buffer.get(), "unit");
+        buffer.get();
+
+        int size = buffer.getInt();
+        int stride = type.stride();
+        long valueBytes = type == Keyframes.Type.DOUBLE ? (long) size * Double.BYTES :
+                (long) size * stride * Integer.BYTES;
+
+        // Checked up front so a corrupt count can't trigger a huge allocation
+        if (size < 0 || (long) size * Float.BYTES + valueBytes > buffer.remaining())
+            throw new KeyframeFormatException("Truncated keyframe data");
+
+        float[] instants = new float[size];
+        buffer.asFloatBuffer().get(instants);
+        buffer.position(buffer.position() + size * Float.BYTES);
+
+        int[] ints = null;
+        double[] doubles = null;
+
+        if (type == Keyframes.Type.DOUBLE) {
+            doubles = new double[size];
+            buffer.asDoubleBuffer().get(doubles);
+            buffer.position(buffer.position() + size * Double.BYTES);
+        } else {
+            ints = new int[size * stride];
+            buffer.asIntBuffer().get(ints);
+            buffer.position(buffer.position() + ints.length * Integer.BYTES);
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (!unit.check(instants[i]))
+                throw new KeyframeInstantException("Instant value out of range " + unit.range() + ": " + instants[i]);
+
+            if (i > 0 && instants[i] < instants[i - 1])
+                throw new KeyframeFormatException("Key frames are not sorted by instant");
+        }
+
+        return new Keyframes(type, unit, instants, ints, doubles);
+    }
+
+    private static <E> E enumAt(E[] values, int ordinal, String name) {
+        if (ordinal < 0 || ordinal >= values.length)
+            throw new KeyframeFormatException("Unknown " + name + ": " + ordinal);
+
+        return values[ordinal];
+    }
+
+    /**
+     * Writes {@code keyframes} to a file, replacing its contents.
+     * @param keyframes Keyframes to write
+     * @param file Destination file
+     * @throws IOException If the file can't be written
+     */
+    public static void write(Keyframes keyframes, Path file) throws IOException {
+        if (keyframes == null || file == null)
+            throw new IllegalArgumentException("Keyframes and file can't be null");
+
+        ByteBuffer buffer = ByteBuffer.allocate(byteSize(keyframes));
+        write(keyframes, buffer);
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads keyframes from a file written by {@link #write(Keyframes, Path)}.
+     * @param file Source file
+     * @return Keyframes object
+     * @throws IOException If the file can't be read
+     * @throws KeyframeFormatException If the file isn't in this format or holds invalid key frames
+     */
+    public static Keyframes read(Path file) throws IOException {
+        if (file == null)
+            throw new IllegalArgumentException("File can't be null");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("File too large: " + length + " bytes");
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("File shrunk while reading: " + file);
+            }
+
+            buffer.flip();
+            return read(buffer);
+        }
+    }
+}
@@ -3,6 +3,12 @@ package io.github.z3r0x24.jani.Keyframes;
 import java.awt.*;
 import java.util.regex.Pattern;
 
+/**
+ * Regular expression based helpers formerly used by {@link Keyframes#parse(String)}.
+ * @deprecated Keyframes are now parsed in a single pass without regular expressions, use
+ * {@link Keyframes#parse(String)} instead.
+ */
+@Deprecated
 public class ParseUtil {
     private static final String doubleRegex = "\\d?\\.?\\d+";
     private static final String percentRegex = doubleRegex + "%";
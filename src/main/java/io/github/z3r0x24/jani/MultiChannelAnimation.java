@@ -0,0 +1,448 @@
+package io.github.z3r0x24.jani;
+
+import io.github.z3r0x24.jani.Keyframes.CompiledKeyframes;
+import io.github.z3r0x24.jani.Keyframes.Keyframes;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * An animation driving several key frame tracks (channels) with a single timeline. Animating the bounds and opacity of
+ * a component, for instance, takes one channel per property but a single animator: every frame evaluates all channels
+ * together and makes one {@link #update(Frame)} call with every value, instead of one animation, one frame event and
+ * one update per property. <br>
+ * Channels may mix value types and instant units; they all share the duration, delay, easing function and playback
+ * state of the animation. Channels are referred to by their index, in the order they were given to the constructor.
+ */
+public abstract class MultiChannelAnimation {
+    private final Keyframes[] channels;
+    private final float durationSeconds;
+    private final Animator animator;
+    private final Frame frame;
+
+    // Segment found on the previous frame for each channel, used as the hint for the next lookup
+    private final int[] segments;
+
+    public MultiChannelAnimation(float durationSeconds, Keyframes... channels) {
+        this(durationSeconds, 0, false, Easing.Default.LINEAR, channels);
+    }
+
+    public MultiChannelAnimation(float durationSeconds, float delaySeconds, Keyframes... channels) {
+        this(durationSeconds, delaySeconds, false, Easing.Default.LINEAR, channels);
+    }
+
+    public MultiChannelAnimation(float durationSeconds, float delaySeconds, boolean loops, Easing easing,
+                                 Keyframes... channels) {
+        if (channels == null || channels.length == 0)
+            throw new IllegalArgumentException("At least one channel is needed");
+
+        Keyframes.Type[] types = new Keyframes.Type[channels.length];
+
+        for (int i = 0; i < channels.length; i++) {
+            if (channels[i] == null)
+                throw new IllegalArgumentException("Channel " + i + " can't be null");
+
+            types[i] = channels[i].getType();
+            // Fails early on empty key frames or an invalid duration
+            channels[i].compile(durationSeconds);
+        }
+
+        this.channels = channels.clone();
+        this.durationSeconds = durationSeconds;
+        this.segments = new int[channels.length];
+        this.frame = new Frame(types);
+        this.animator = new Animator(Math.round(durationSeconds * 1000), Math.round(delaySeconds * 1000), loops, easing) {
+            @Override
+            public void update(float fraction) {
+                evaluate(fraction);
+                MultiChannelAnimation.this.update(frame);
+            }
+
+            @Override
+            protected void onAnimationFinished() {
+                MultiChannelAnimation.this.onAnimationFinished();
+            }
+        };
+    }
+
+    private void evaluate(float fraction) {
+        Keyframes.Type[] types = frame.types;
+        int[] ints = frame.ints;
+        double[] doubles = frame.doubles;
+
+        frame.fraction = fraction;
+
+        for (int i = 0; i < channels.length; i++) {
+            CompiledKeyframes timeline = channels[i].compile(durationSeconds);
+            int segment = timeline.segment(fraction, segments[i]);
+
+            segments[i] = segment;
+
+            switch (types[i]) {
+                case INT:
+                    ints[i * 2] = timeline.getInt(segment, fraction);
+                    break;
+                case DOUBLE:
+                    doubles[i] = timeline.getDouble(segment, fraction);
+                    break;
+                case POINT:
+                case DIM:
+                    ints[i * 2] = timeline.getX(segment, fraction);
+                    ints[i * 2 + 1] = timeline.getY(segment, fraction);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Values of every channel for one frame. The same instance is passed to every {@link #update(Frame)} call and
+     * overwritten on the next frame, so values that need to be kept around must be copied out.
+     */
+    public static final class Frame {
+        private final Keyframes.Type[] types;
+        // One int (INT) or a pair (POINT/DIM) per channel, and one double (DOUBLE) per channel
+        private final int[] ints;
+        private final double[] doubles;
+        private float fraction;
+
+        private Frame(Keyframes.Type[] types) {
+            this.types = types;
+            this.ints = new int[types.length * 2];
+            this.doubles = new double[types.length];
+        }
+
+        /**
+         * @return Eased fraction of the animation for this frame
+         */
+        public float getFraction() {
+            return fraction;
+        }
+
+        /**
+         * @return Amount of channels
+         */
+        public int getChannelCount() {
+            return types.length;
+        }
+
+        /**
+         * @param channel Channel index
+         * @return Value type of the channel
+         */
+        public Keyframes.Type getType(int channel) {
+            return types[channel];
+        }
+
+        /**
+         * Returns the value of an {@code INT} channel.
+         * @param channel Channel index
+         * @return Interpolated integer
+         */
+        public int getInt(int channel) {
+            check(channel, Keyframes.Type.INT);
+            return ints[channel * 2];
+        }
+
+        /**
+         * Returns the value of a {@code DOUBLE} channel.
+         * @param channel Channel index
+         * @return Interpolated double
+         */
+        public double getDouble(int channel) {
+            check(channel, Keyframes.Type.DOUBLE);
+            return doubles[channel];
+        }
+
+        /**
+         * Returns the x coordinate of a {@code POINT} channel, or the width of a {@code DIM} one.
+         * @param channel Channel index
+         * @return Interpolated x coordinate (width)
+         */
+        public int getX(int channel) {
+            checkPair(channel);
+            return ints[channel * 2];
+        }
+
+        /**
+         * Returns the y coordinate of a {@code POINT} channel, or the height of a {@code DIM} one.
+         * @param channel Channel index
+         * @return Interpolated y coordinate (height)
+         */
+        public int getY(int channel) {
+            checkPair(channel);
+            return ints[channel * 2 + 1];
+        }
+
+        /**
+         * Returns the value of a {@code POINT} channel as a new Point.
+         * @param channel Channel index
+         * @return Interpolated point
+         */
+        public Point getPoint(int channel) {
+            check(channel, Keyframes.Type.POINT);
+            return new Point(ints[channel * 2], ints[channel * 2 + 1]);
+        }
+
+        /**
+         * Returns the value of a {@code DIM} channel as a new Dimension.
+         * @param channel Channel index
+         * @return Interpolated dimension
+         */
+        public Dimension getDim(int channel) {
+            check(channel, Keyframes.Type.DIM);
+            return new Dimension(ints[channel * 2], ints[channel * 2 + 1]);
+        }
+
+        private void check(int channel, Keyframes.Type expected) {
+            if (types[channel] != expected)
+                throw new IllegalStateException("Incorrect solicited type (Channel: " + channel + ", type: " +
+                        types[channel] + ", solicited: " + expected + ")");
+        }
+
+        private void checkPair(int channel) {
+            if (types[channel] != Keyframes.Type.POINT && types[channel] != Keyframes.Type.DIM)
+                throw new IllegalStateException("Incorrect solicited type (Channel: " + channel + ", type: " +
+                        types[channel] + ", solicited: Point/Dimension)");
+        }
+    }
+
+    /**
+     * Override this method to update (repaint) the component you want to animate. Called once per frame with the values
+     * of every channel.
+     * @param frame Values of every channel, only valid during this call
+     */
+    protected abstract void update(Frame frame);
+
+    /**
+     * This method is called upon the animation finishing or the {@code stop()} method being called. Useful for chaining
+     * animations.
+     */
+    public void onAnimationFinished(){}
+
+    /**
+     * Returns the key frames of a channel.
+     * @param channel Channel index
+     * @return Key frames driving the channel
+     */
+    public Keyframes getChannel(int channel) {
+        return channels[channel];
+    }
+
+    /**
+     * @return Amount of channels
+     */
+    public int getChannelCount() {
+        return channels.length;
+    }
+
+    /**
+     * Plays the animation in whichever direction it was set before calling this method.
+     */
+    public void play() {
+        animator.play();
+    }
+
+    /**
+     * Plays the animation in whichever direction it was set before calling this method.
+     * @param skipDelay If true, will skip the initial delay.
+     */
+    public void play(boolean skipDelay) {
+        animator.play(skipDelay);
+    }
+
+    /**
+     * Plays the animation ensuring it will go forward.
+     */
+    public void forward() {
+        animator.forward();
+    }
+
+    /**
+     * Plays the animation ensuring it will go forward.
+     * @param skipDelay If true, will skip the initial delay.
+     */
+    public void forward(boolean skipDelay) {
+        animator.forward(skipDelay);
+    }
+
+    /**
+     * Plays the animation ensuring it will go backward.
+     */
+    public void backward() {
+        animator.backward();
+    }
+
+    /**
+     * Plays the animation ensuring it will go backward.
+     * @param skipDelay If true, will skip the initial delay.
+     */
+    public void backward(boolean skipDelay) {
+        animator.backward(skipDelay);
+    }
+
+    /**
+     * Pauses the animation. Can be resumed.
+     */
+    public void pause() {
+        animator.pause();
+    }
+
+    /**
+     * Stops the animation setting it back to the beginning and calls {@code onAnimationFinished()}.
+     * @see MultiChannelAnimation#cancel()
+     */
+    public void stop() {
+        animator.stop();
+    }
+
+    /**
+     * Stops the animation without calling {@code onAnimationFinished()}.
+     * @see MultiChannelAnimation#stop()
+     */
+    public void cancel() {
+        animator.cancel();
+    }
+
+    /**
+     * Sets the initial delay before the animation plays.
+     * @param delay Delay time in seconds
+     */
+    public void setDelay(float delay) {
+        animator.setDelay(Math.round(delay * 1000));
+    }
+
+    /**
+     * Sets the easing function to use. Default functions are given in the {@code Easing.Default} enum.
+     * @param easing Easing interface defining an easing function
+     * @see Animator#setEasing(Easing) More information on easing functions
+     */
+    public void setEasing(Easing easing) {
+        animator.setEasing(easing);
+    }
+
+    /**
+     * Returns the duration of this animation.
+     * @return Duration in seconds
+     */
+    public float getDuration() {
+        return durationSeconds;
+    }
+
+    /**
+     * Defines whether the animation should loop.
+     * @param loop If true, the animation will loop
+     * @see Animator#loop(boolean) More information on looping
+     */
+    public void loop(boolean loop) {
+        animator.loop(loop);
+    }
+
+    /**
+     * @return true if the animation is set to run backward
+     */
+    public boolean isGoingBackward() {
+        return animator.isGoingBackward();
+    }
+
+    /**
+     * @return true if the animation is set to run forward
+     */
+    public boolean isGoingForward() {
+        return animator.isGoingForward();
+    }
+
+    /**
+     * Reverts the current direction while keeping the running state.
+     * @see Animator#revert()
+     */
+    public void revert() {
+        animator.revert();
+    }
+
+    /**
+     * Setting this value to true on a looping animation will indicate the animation that it should run back only to the
+     * start instead of looping backwards the same amount of times it looped forward.
+     * @param backToStart if true, animation will only revert to starting point
+     */
+    public void setBackToStart(boolean backToStart) {
+        animator.setBackToStart(backToStart);
+    }
+
+    /**
+     * Determines whether the animation will return to the starting point on finishing or it will retain that state.
+     * This only has effect on non-repeating animations.
+     * @param b If true, animation will retain the ending state (fraction at 1)
+     */
+    public void freeze(boolean b) {
+        animator.freeze(b);
+    }
+
+    /**
+     * Binds this animation to a component that will be repainted after every update, coalesced with the other
+     * animations bound to it into one repaint per frame.
+     * @param target Component to repaint, null to stop repainting
+     * @see Animator#setRepaintTarget(JComponent) More information on repaint coalescing
+     */
+    public void setRepaintTarget(JComponent target) {
+        animator.setRepaintTarget(target);
+    }
+
+    /**
+     * @return Component repainted after every update, null if none
+     */
+    public JComponent getRepaintTarget() {
+        return animator.getRepaintTarget();
+    }
+
+    /**
+     * Marks the whole repaint target as dirty. Must be called from {@code update()}.
+     */
+    public void markDirty() {
+        animator.markDirty();
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param x X coordinate of the region
+     * @param y Y coordinate of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     * @see Animator#markDirty(int, int, int, int)
+     */
+    public void markDirty(int x, int y, int width, int height) {
+        animator.markDirty(x, y, width, height);
+    }
+
+    /**
+     * Marks part of the repaint target as dirty, in the target's coordinate space. Must be called from
+     * {@code update()}.
+     * @param region Region to repaint
+     */
+    public void markDirty(Rectangle region) {
+        animator.markDirty(region);
+    }
+
+    /**
+     * @return true if the animation is currently running
+     */
+    public boolean isRunning() {
+        return animator.isRunning();
+    }
+
+    /**
+     * Sets the speed of this animation.
+     * @param factor Speed factor
+     */
+    public void setSpeed(float factor) {
+        animator.setSpeed(factor);
+    }
+
+    /**
+     * Returns the current speed of this animation.
+     * @return Speed factor
+     */
+    public float getSpeed() {
+        return animator.getSpeed();
+    }
+}
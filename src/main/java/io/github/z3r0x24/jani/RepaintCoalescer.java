@@ -0,0 +1,109 @@
+package io.github.z3r0x24.jani;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+
+/**
+ * Collects the regions animations mark as dirty while a frame's updates are delivered and repaints each component once
+ * afterwards, with the union of every region reported for it. With many animations drawing on the same container this
+ * turns one repaint request per animation into one per component and frame, and only the area that changed is painted.
+ * <p>
+ * Only used from the thread updates are delivered on (the EDT, or the thread driving a {@link VirtualClock}), so no
+ * synchronization is needed. Each component's pending region is kept in one of its client properties, reused from frame
+ * to frame.
+ */
+final class RepaintCoalescer {
+    private static final Object REGION_KEY = new Object();
+
+    private static final ArrayList<Region> dirty = new ArrayList<>();
+
+    private RepaintCoalescer() {}
+
+    /**
+     * Marks the whole component as dirty.
+     * @param component Component to repaint
+     */
+    static void mark(JComponent component) {
+        Region region = region(component);
+
+        region.whole = true;
+        queue(region);
+    }
+
+    /**
+     * Marks part of a component as dirty.
+     * @param component Component to repaint
+     * @param x X coordinate of the region, in the component's coordinate space
+     * @param y Y coordinate of the region
+     * @param width Width of the region
+     * @param height Height of the region
+     */
+    static void mark(JComponent component, int x, int y, int width, int height) {
+        if (width <= 0 || height <= 0)
+            return;
+
+        Region region = region(component);
+
+        if (region.whole)
+            return;
+
+        if (region.queued)
+            SwingUtilities.computeUnion(x, y, width, height, region.bounds);
+        else
+            region.bounds.setBounds(x, y, width, height);
+
+        queue(region);
+    }
+
+    /**
+     * Issues one repaint per component marked since the last flush.
+     */
+    static void flush() {
+        if (dirty.isEmpty())
+            return;
+
+        for (int i = 0; i < dirty.size(); i++) {
+            Region region = dirty.get(i);
+
+            if (region.whole)
+                region.component.repaint();
+            else
+                region.component.repaint(region.bounds);
+
+            region.whole = false;
+            region.queued = false;
+        }
+
+        dirty.clear();
+    }
+
+    private static void queue(Region region) {
+        if (!region.queued) {
+            region.queued = true;
+            dirty.add(region);
+        }
+    }
+
+    private static Region region(JComponent component) {
+        Region region = (Region) component.getClientProperty(REGION_KEY);
+
+        if (region == null) {
+            region = new Region(component);
+            component.putClientProperty(REGION_KEY, region);
+        }
+
+        return region;
+    }
+
+    private static final class Region {
+        private final JComponent component;
+        private final Rectangle bounds = new Rectangle();
+        private boolean whole;
+        private boolean queued;
+
+        Region(JComponent component) {
+            this.component = component;
+        }
+    }
+}
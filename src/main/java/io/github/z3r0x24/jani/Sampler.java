@@ -0,0 +1,265 @@
+package io.github.z3r0x24.jani;
+
+import io.github.z3r0x24.jani.Keyframes.CompiledKeyframes;
+import io.github.z3r0x24.jani.Keyframes.Keyframes;
+
+/**
+ * Evaluates key frames the way an {@link Animation} with the same key frames, duration and easing function would, but
+ * for many points of the animation at once and without playing it. Meant for previews, thumbnails and exporting.
+ * <p>
+ * Samples are taken at animation fractions (the time elapsed divided by the duration, before easing): either
+ * {@code count} evenly spaced ones from 0 to 1, both included, or the ones given in an array. Results are written into
+ * primitive arrays: {@code int[]} for INT key frames, {@code double[]} for DOUBLE ones and x/y (width/height) pairs
+ * packed into an {@code int[]} for POINT (DIM) ones. The loops don't allocate, methods returning a new array only
+ * allocate that array.
+ */
+public final class Sampler {
+    private final Keyframes keyframes;
+    private final float durationSeconds;
+    private final Easing easing;
+
+    /**
+     * Creates a sampler for a linear animation.
+     * @param keyframes Key frames to sample
+     * @param durationSeconds Duration of the animation in seconds
+     */
+    public Sampler(Keyframes keyframes, float durationSeconds) {
+        this(keyframes, durationSeconds, Easing.Default.LINEAR);
+    }
+
+    /**
+     * Creates a sampler.
+     * @param keyframes Key frames to sample
+     * @param durationSeconds Duration of the animation in seconds
+     * @param easing Easing function applied to the animation fraction
+     */
+    public Sampler(Keyframes keyframes, float durationSeconds, Easing easing) {
+        if (keyframes == null || easing == null)
+            throw new IllegalArgumentException("Keyframes and easing can't be null");
+
+        this.keyframes = keyframes;
+        this.durationSeconds = durationSeconds;
+        this.easing = easing;
+
+        // Fails early on an invalid duration or empty key frames
+        keyframes.compile(durationSeconds);
+    }
+
+    /**
+     * Samples INT key frames at {@code count} evenly spaced fractions.
+     * @param count Amount of samples
+     * @return Sampled values
+     */
+    public int[] sampleInts(int count) {
+        int[] dest = new int[checkCount(count)];
+        sampleInts(count, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Samples INT key frames at {@code count} evenly spaced fractions into {@code dest}, starting at {@code offset}.
+     * @param count Amount of samples
+     * @param dest Destination array
+     * @param offset Index of the first sample in {@code dest}
+     */
+    public void sampleInts(int count, int[] dest, int offset) {
+        CompiledKeyframes timeline = timeline(Keyframes.Type.INT, count, dest.length - offset);
+        Easing easing = this.easing;
+        float divisor = divisor(count);
+        int segment = 0;
+
+        for (int i = 0; i < count; i++) {
+            float fraction = easing.apply(i / divisor);
+            segment = timeline.segment(fraction, segment);
+            dest[offset + i] = timeline.getInt(segment, fraction);
+        }
+    }
+
+    /**
+     * Samples INT key frames at the fractions {@code fractions[from]} to {@code fractions[to - 1]} into {@code dest},
+     * starting at {@code offset}.
+     * @param fractions Animation fractions
+     * @param from First fraction to sample, inclusive
+     * @param to Last fraction to sample, exclusive
+     * @param dest Destination array
+     * @param offset Index of the first sample in {@code dest}
+     */
+    public void sampleInts(float[] fractions, int from, int to, int[] dest, int offset) {
+        checkRange(fractions, from, to);
+        CompiledKeyframes timeline = timeline(Keyframes.Type.INT, to - from, dest.length - offset);
+        Easing easing = this.easing;
+        int segment = 0;
+
+        for (int i = from; i < to; i++) {
+            float fraction = easing.apply(fractions[i]);
+            segment = timeline.segment(fraction, segment);
+            dest[offset + i - from] = timeline.getInt(segment, fraction);
+        }
+    }
+
+    /**
+     * Samples DOUBLE key frames at {@code count} evenly spaced fractions.
+     * @param count Amount of samples
+     * @return Sampled values
+     */
+    public double[] sampleDoubles(int count) {
+        double[] dest = new double[checkCount(count)];
+        sampleDoubles(count, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Samples DOUBLE key frames at {@code count} evenly spaced fractions into {@code dest}, starting at {@code offset}.
+     * @param count Amount of samples
+     * @param dest Destination array
+     * @param offset Index of the first sample in {@code dest}
+     */
+    public void sampleDoubles(int count, double[] dest, int offset) {
+        CompiledKeyframes timeline = timeline(Keyframes.Type.DOUBLE, count, dest.length - offset);
+        Easing easing = this.easing;
+        float divisor = divisor(count);
+        int segment = 0;
+
+        for (int i = 0; i < count; i++) {
+            float fraction = easing.apply(i / divisor);
+            segment = timeline.segment(fraction, segment);
+            dest[offset + i] = timeline.getDouble(segment, fraction);
+        }
+    }
+
+    /**
+     * Samples DOUBLE key frames at the fractions {@code fractions[from]} to {@code fractions[to - 1]} into
+     * {@code dest}, starting at {@code offset}.
+     * @param fractions Animation fractions
+     * @param from First fraction to sample, inclusive
+     * @param to Last fraction to sample, exclusive
+     * @param dest Destination array
+     * @param offset Index of the first sample in {@code dest}
+     */
+    public void sampleDoubles(float[] fractions, int from, int to, double[] dest, int offset) {
+        checkRange(fractions, from, to);
+        CompiledKeyframes timeline = timeline(Keyframes.Type.DOUBLE, to - from, dest.length - offset);
+        Easing easing = this.easing;
+        int segment = 0;
+
+        for (int i = from; i < to; i++) {
+            float fraction = easing.apply(fractions[i]);
+            segment = timeline.segment(fraction, segment);
+            dest[offset + i - from] = timeline.getDouble(segment, fraction);
+        }
+    }
+
+    /**
+     * Samples POINT or DIM key frames at {@code count} evenly spaced fractions.
+     * @param count Amount of samples
+     * @return Sampled values as x/y (width/height) pairs, {@code count * 2} elements
+     */
+    public int[] samplePairs(int count) {
+        int[] dest = new int[checkCount(count) * 2];
+        samplePairs(count, dest, 0);
+        return dest;
+    }
+
+    /**
+     * Samples POINT or DIM key frames at {@code count} evenly spaced fractions into {@code dest} as x/y (width/height)
+     * pairs, starting at {@code offset}.
+     * @param count Amount of samples
+     * @param dest Destination array, needs room for {@code count * 2} elements
+     * @param offset Index of the first sample's x coordinate (width) in {@code dest}
+     */
+    public void samplePairs(int count, int[] dest, int offset) {
+        CompiledKeyframes timeline = timeline(null, count * 2, dest.length - offset);
+        Easing easing = this.easing;
+        float divisor = divisor(count);
+        int segment = 0;
+
+        for (int i = 0; i < count; i++) {
+            float fraction = easing.apply(i / divisor);
+            segment = timeline.segment(fraction, segment);
+            dest[offset + i * 2] = timeline.getX(segment, fraction);
+            dest[offset + i * 2 + 1] = timeline.getY(segment, fraction);
+        }
+    }
+
+    /**
+     * Samples POINT or DIM key frames at the fractions {@code fractions[from]} to {@code fractions[to - 1]} into
+     * {@code dest} as x/y (width/height) pairs, starting at {@code offset}.
+     * @param fractions Animation fractions
+     * @param from First fraction to sample, inclusive
+     * @param to Last fraction to sample, exclusive
+     * @param dest Destination array, needs room for {@code (to - from) * 2} elements
+     * @param offset Index of the first sample's x coordinate (width) in {@code dest}
+     */
+    public void samplePairs(float[] fractions, int from, int to, int[] dest, int offset) {
+        checkRange(fractions, from, to);
+        CompiledKeyframes timeline = timeline(null, (to - from) * 2, dest.length - offset);
+        Easing easing = this.easing;
+        int segment = 0;
+
+        for (int i = from; i < to; i++) {
+            float fraction = easing.apply(fractions[i]);
+            segment = timeline.segment(fraction, segment);
+            int index = offset + (i - from) * 2;
+            dest[index] = timeline.getX(segment, fraction);
+            dest[index + 1] = timeline.getY(segment, fraction);
+        }
+    }
+
+    // Compiled lazily on every call, so key frames added after creating the sampler are picked up (it's cached anyway)
+    private CompiledKeyframes timeline(Keyframes.Type type, int length, int room) {
+        CompiledKeyframes timeline = keyframes.compile(durationSeconds);
+        Keyframes.Type actual = timeline.getType();
+
+        if (type != null ? actual != type : actual != Keyframes.Type.POINT && actual != Keyframes.Type.DIM)
+            throw new IllegalStateException("Incorrect solicited type (Type: " + actual + ", solicited: " +
+                    (type != null ? type : "Point/Dimension") + ")");
+
+        checkCount(length);
+
+        if (room < length)
+            throw new IndexOutOfBoundsException("Not enough room in destination: " + length + " needed, " + room +
+                    " available");
+
+        return timeline;
+    }
+
+    private static int checkCount(int count) {
+        if (count < 0)
+            throw new IllegalArgumentException("Sample count can't be negative: " + count);
+
+        return count;
+    }
+
+    private static void checkRange(float[] fractions, int from, int to) {
+        if (from < 0 || to > fractions.length || from > to)
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " +
+                    fractions.length);
+    }
+
+    // Evenly spaced fractions are i / divisor, dividing (rather than multiplying by a step) lands exactly on 1 at the
+    // end. A single sample is taken at the start.
+    private static float divisor(int count) {
+        return Math.max(count - 1, 1);
+    }
+
+    /**
+     * @return Key frames being sampled
+     */
+    public Keyframes getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * @return Duration of the sampled animation in seconds
+     */
+    public float getDuration() {
+        return durationSeconds;
+    }
+
+    /**
+     * @return Easing function applied to the animation fraction
+     */
+    public Easing getEasing() {
+        return easing;
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.z3r0x24.jani;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An easing function sampled once into a lookup table and evaluated by linear interpolation between samples. Useful for
+ * the curves that rely on {@code Math.pow}, {@code Math.sin} and such (elastic, expo, sin, circ...) when many animations
+ * use them at the same time. Instances are obtained through {@link Easing#tabulated(Easing, int)} and are shared: asking
+ * twice for the same function and resolution returns the same table.
+ * <p>
+ * The table is checked against the original function when it's built, {@link #getMaxError()} returns the largest
+ * difference found. At the default resolution (1024 intervals) it stays below 0.002 for every {@code Easing.Default}
+ * curve except the circ ones (around 0.011, their slope is infinite at one end), which need a higher resolution for the
+ * same accuracy.
+ */
+public final class TabulatedEasing implements Easing {
+    /**
+     * Resolution used by {@link Easing#tabulated(Easing)}.
+     */
+    public static final int DEFAULT_RESOLUTION = 1024;
+
+    // Points checked between every pair of samples when measuring the error
+    private static final int ERROR_CHECKS = 8;
+
+    // Weak keys so tabulating a custom easing doesn't keep it alive forever
+    private static final Map<Easing, Map<Integer, TabulatedEasing>> cache = new WeakHashMap<>();
+
+    private final float[] table;
+    private final int resolution;
+    private final float maxError;
+
+    private TabulatedEasing(Easing easing, int resolution) {
+        this.resolution = resolution;
+        this.table = new float[resolution + 1];
+
+        for (int i = 0; i <= resolution; i++)
+            table[i] = easing.apply((float) i / resolution);
+
+        float error = 0;
+
+        for (int i = 0; i < resolution; i++) {
+            for (int j = 1; j < ERROR_CHECKS; j++) {
+                float x = (i + (float) j / ERROR_CHECKS) / resolution;
+                error = Math.max(error, Math.abs(easing.apply(x) - apply(x)));
+            }
+        }
+
+        this.maxError = error;
+    }
+
+    static TabulatedEasing of(Easing easing, int resolution) {
+        if (easing == null)
+            throw new IllegalArgumentException("Easing function can't be null");
+
+        if (resolution < 1)
+            throw new IllegalArgumentException("Resolution can't be less than 1");
+
+        synchronized (cache) {
+            return cache.computeIfAbsent(easing, e -> new HashMap<>())
+                    .computeIfAbsent(resolution, r -> new TabulatedEasing(easing, r));
+        }
+    }
+
+    @Override
+    public float apply(float fraction) {
+        if (fraction <= 0)
+            return table[0];
+
+        if (fraction >= 1)
+            return table[resolution];
+
+        float position = fraction * resolution;
+        int index = (int) position;
+        float from = table[index];
+
+        return from + (table[index + 1] - from) * (position - index);
+    }
+
+    /**
+     * @return Amount of intervals the [0, 1] range was split into
+     */
+    public int getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Returns the largest absolute difference between this table and the function it was built from, as measured when
+     * building it.
+     * @return Max interpolation error
+     */
+    public float getMaxError() {
+        return maxError;
+    }
+}
@@ -80,12 +80,42 @@ public final class Tween {
      * @return Interpolated Point
      */
     public static Point interpolatePoint(Point from, Point to, float fraction, Easing easeX, Easing easeY) {
+        return interpolatePoint(from, to, fraction, easeX, easeY, new Point());
+    }
+
+    /**
+     * Interpolates a Point between {@code from} and {@code to} at the specified {@code fraction} without easing
+     * (linear), writing the result into {@code dest} instead of creating a new Point.
+     * @param from First point
+     * @param to Second point
+     * @param fraction Value fraction
+     * @param dest Point receiving the result, may be {@code from} or {@code to}
+     * @return {@code dest}
+     */
+    public static Point interpolatePoint(Point from, Point to, float fraction, Point dest) {
+        return interpolatePoint(from, to, fraction, Easing.Default.LINEAR, Easing.Default.LINEAR, dest);
+    }
+
+    /**
+     * Interpolates a Point between {@code from} and {@code to} at the specified {@code fraction} with the specified
+     * easing function, writing the result into {@code dest} instead of creating a new Point. The x and y coordinates
+     * are interpolated independent of each other, so a different easing function is allowed for each one.
+     * @param from First point
+     * @param to Second point
+     * @param fraction Value fraction
+     * @param easeX X coordinate easing function
+     * @param easeY Y coordinate easing function
+     * @param dest Point receiving the result, may be {@code from} or {@code to}
+     * @return {@code dest}
+     */
+    public static Point interpolatePoint(Point from, Point to, float fraction, Easing easeX, Easing easeY, Point dest) {
         int x, y;
 
         x = interpolateInt(from.x, to.x, fraction, easeX);
         y = interpolateInt(from.y, to.y, fraction, easeY);
 
-        return new Point(x, y);
+        dest.setLocation(x, y);
+        return dest;
     }
 
     /**
@@ -112,11 +142,42 @@ public final class Tween {
      * @return Interpolated Dimension
      */
     public static Dimension interpolateDim(Dimension from, Dimension to, float fraction, Easing easeW, Easing easeH) {
+        return interpolateDim(from, to, fraction, easeW, easeH, new Dimension());
+    }
+
+    /**
+     * Interpolates a Dimension between {@code from} and {@code to} at the specified {@code fraction} without easing
+     * (linear), writing the result into {@code dest} instead of creating a new Dimension.
+     * @param from First dimension
+     * @param to Second dimension
+     * @param fraction Value fraction
+     * @param dest Dimension receiving the result, may be {@code from} or {@code to}
+     * @return {@code dest}
+     */
+    public static Dimension interpolateDim(Dimension from, Dimension to, float fraction, Dimension dest) {
+        return interpolateDim(from, to, fraction, Easing.Default.LINEAR, Easing.Default.LINEAR, dest);
+    }
+
+    /**
+     * Interpolates a Dimension between {@code from} and {@code to} at the specified {@code fraction} with the specified
+     * easing function, writing the result into {@code dest} instead of creating a new Dimension. The width and height
+     * are interpolated independent of each other, so a different easing function is allowed for each one.
+     * @param from First dimension
+     * @param to Second dimension
+     * @param fraction Value fraction
+     * @param easeW Width easing function
+     * @param easeH Height easing function
+     * @param dest Dimension receiving the result, may be {@code from} or {@code to}
+     * @return {@code dest}
+     */
+    public static Dimension interpolateDim(Dimension from, Dimension to, float fraction, Easing easeW, Easing easeH,
+                                           Dimension dest) {
         int w, h;
 
         w = interpolateInt(from.width, to.width, fraction, easeW);
         h = interpolateInt(from.height, to.height, fraction, easeH);
 
-        return new Dimension(w, h);
+        dest.setSize(w, h);
+        return dest;
     }
 }
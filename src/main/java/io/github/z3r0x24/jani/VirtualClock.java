@@ -0,0 +1,143 @@
+package io.github.z3r0x24.jani;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A manually driven clock for running animations without waiting for real time, e.g. in tests or when rendering frame
+ * sequences offline in a headless JVM. While installed, every {@link Animator} takes its time from this clock and frames
+ * only happen when it's advanced: {@code clock.advance(16, TimeUnit.MILLISECONDS)} moves time forward and runs every
+ * frame whose deadline falls within that time, so a 2 second animation can be played in a few microseconds and the same
+ * calls always produce the same frames. <br>
+ * Updates are delivered on the thread advancing the clock instead of on the EDT, by the time {@code advance} returns
+ * every update for the elapsed frames has been made.
+ * <p>
+ * Frames happen every {@link Animator#getExactGlobalFPSTarget() frame period} from the moment the clock was installed, and
+ * the clock starts at 0. Only one virtual clock can be installed at a time, and it should be driven from a single
+ * thread. Animations already running when it's installed carry on in virtual time from the point they had reached.
+ */
+public final class VirtualClock {
+    private volatile long now;
+    private long nextFrame;
+    private long frames;
+    private boolean installed;
+
+    private VirtualClock() {}
+
+    /**
+     * Installs a new virtual clock, taking over frame timing from the real time pulse until it's uninstalled. Animations
+     * already running keep their progress and continue from there in virtual time.
+     * @return The installed clock
+     * @throws IllegalStateException If another virtual clock is already installed
+     */
+    public static VirtualClock install() {
+        VirtualClock clock = new VirtualClock();
+
+        FrameClock.install(clock);
+        clock.installed = true;
+        clock.nextFrame = FrameClock.getPeriod();
+
+        return clock;
+    }
+
+    /**
+     * Gives frame timing back to the real time pulse. Animations still running carry on in real time, from the point
+     * the virtual time left them at.
+     */
+    public void uninstall() {
+        if (installed) {
+            installed = false;
+            FrameClock.uninstall(this);
+        }
+    }
+
+    /**
+     * Moves the time forward, running every frame due in the meantime.
+     * @param amount Amount of time
+     * @param unit Unit of {@code amount}
+     * @return Amount of frames run
+     * @throws IllegalArgumentException If {@code amount} is negative
+     * @throws IllegalStateException If this clock has been uninstalled
+     */
+    public int advance(long amount, TimeUnit unit) {
+        if (amount < 0)
+            throw new IllegalArgumentException("Can't go back in time: " + amount);
+
+        checkInstalled();
+
+        long target = now + unit.toNanos(amount);
+        int count = 0;
+
+        while (nextFrame - target <= 0) {
+            frame();
+            count++;
+        }
+
+        now = target;
+        return count;
+    }
+
+    /**
+     * Moves the time forward to the next frame and runs it.
+     * @throws IllegalStateException If this clock has been uninstalled
+     */
+    public void step() {
+        checkInstalled();
+        frame();
+    }
+
+    /**
+     * Runs frames back to back until every animation has finished (or been paused), at maximum speed. Useful for
+     * playing animations to completion; looping animations never finish, so the time is capped by {@code limit}.
+     * @param limit Maximum amount of time to advance
+     * @param unit Unit of {@code limit}
+     * @return Amount of frames run
+     * @throws IllegalStateException If this clock has been uninstalled
+     */
+    public int runUntilIdle(long limit, TimeUnit unit) {
+        checkInstalled();
+
+        long target = now + unit.toNanos(limit);
+        int count = 0;
+
+        while (!FrameClock.isIdle() && nextFrame - target <= 0) {
+            frame();
+            count++;
+        }
+
+        return count;
+    }
+
+    private void frame() {
+        now = nextFrame;
+        frames++;
+        FrameClock.pulse(now);
+        // Read every frame so frame rate changes apply right away, like they do in real time
+        nextFrame += FrameClock.getPeriod();
+    }
+
+    private void checkInstalled() {
+        if (!installed)
+            throw new IllegalStateException("This virtual clock has been uninstalled");
+    }
+
+    /**
+     * @return Current virtual time in nanoseconds
+     */
+    public long now() {
+        return now;
+    }
+
+    /**
+     * @return Amount of frames run since this clock was installed
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    /**
+     * @return Whether no animation is currently running
+     */
+    public boolean isIdle() {
+        return FrameClock.isIdle();
+    }
+}